@@ -0,0 +1,73 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DatabaseManager} over a throwaway SQLite file, pre-filled with
+ * {@code 10.0.0.0 + i}, bound to {@link #playerId(int) playerId(i)}, for every
+ * {@code i} below the requested entry count.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    static final int FIRST_ADDRESS = 0x0A000000;
+    private static final int BATCH_SIZE = 10_000;
+
+    final DatabaseManager manager;
+    final PlayerBindings bindings = new PlayerBindings();
+    private final Path directory;
+
+    BenchmarkDatabase(int entries) {
+        try {
+            directory = Files.createTempDirectory("ipwhitelist-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Logger logger = Logger.getLogger("IPWhitelist-bench");
+        manager = new DatabaseManager(directory.resolve("whitelist.db").toString(), logger, new Metrics(), 4, 256);
+        try {
+            manager.init();
+        } catch (StorageException e) {
+            throw new IllegalStateException("Could not open benchmark database", e);
+        }
+        long now = System.currentTimeMillis();
+        List<WhitelistEntry> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < entries; i++) {
+            batch.add(new WhitelistEntry(CidrRange.ofIPv4(FIRST_ADDRESS + i, 32), "player" + (i % 5000), playerId(i),
+                    "bench", now, 0));
+            if (batch.size() == BATCH_SIZE || i == entries - 1) {
+                manager.addIPs(batch);
+                batch.clear();
+            }
+        }
+        manager.addListener(bindings);
+        manager.loadIndex();
+    }
+
+    /** The player the entry for {@code FIRST_ADDRESS + i} is bound to. */
+    static UUID playerId(int i) {
+        return new UUID(0x1B1B1B1B1B1B1B1BL, i);
+    }
+
+    /** A path inside the throwaway directory, removed again by {@link #close()}. */
+    Path resolve(String name) {
+        return directory.resolve(name);
+    }
+
+    @Override
+    public void close() {
+        manager.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.Earth1283.ipwhitelist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lookup and storage paths of {@link DatabaseManager} against whitelists of
+ * 1k, 100k and 1M entries.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DatabaseManagerBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int entries;
+
+    private BenchmarkDatabase database;
+    private String[] hitText;
+    private InetAddress[] hitAddresses;
+    private InetAddress[] missAddresses;
+    private final AtomicInteger nextAddress = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws UnknownHostException {
+        database = new BenchmarkDatabase(entries);
+        nextAddress.set(BenchmarkDatabase.FIRST_ADDRESS + entries);
+        // A fixed sample of addresses keeps address construction out of the measurement
+        hitText = new String[1024];
+        hitAddresses = new InetAddress[1024];
+        missAddresses = new InetAddress[1024];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < hitText.length; i++) {
+            int hit = BenchmarkDatabase.FIRST_ADDRESS + random.nextInt(entries);
+            hitText[i] = IPAddresses.formatIPv4(hit);
+            hitAddresses[i] = InetAddress.getByName(hitText[i]);
+            missAddresses[i] = InetAddress.getByName(IPAddresses.formatIPv4(0xC0000000 + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isWhitelistedText() {
+        return database.manager.isWhitelisted(hitText[ThreadLocalRandom.current().nextInt(hitText.length)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isWhitelistedHit() {
+        return database.manager.isWhitelisted(hitAddresses[ThreadLocalRandom.current().nextInt(hitAddresses.length)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isWhitelistedMiss() {
+        return database.manager.isWhitelisted(missAddresses[ThreadLocalRandom.current().nextInt(missAddresses.length)]);
+    }
+
+    @Benchmark
+    public boolean addIP() {
+        return database.manager.addIP(IPAddresses.formatIPv4(nextAddress.getAndIncrement()), "bench", null);
+    }
+
+    /** Concurrent adds share commits in the batching writer. */
+    @Benchmark
+    @Threads(8)
+    public boolean addIPConcurrent() {
+        return database.manager.addIP(IPAddresses.formatIPv4(nextAddress.getAndIncrement()), "bench", null);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public List<String> getAllIPs() {
+        return database.manager.getAllIPs();
+    }
+}
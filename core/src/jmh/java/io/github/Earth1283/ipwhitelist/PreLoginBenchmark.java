@@ -0,0 +1,103 @@
+package io.github.Earth1283.ipwhitelist;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * The full pre-login decision in {@link LoginGate}, which the Paper and
+ * Velocity adapters share, driven from every available core as concurrent
+ * logins would be. The config is an in-memory document, so no server or
+ * proxy is needed. In strict mode whitelisted attempts come from the player
+ * each address is bound to, so both modes admit the same share.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+public class PreLoginBenchmark {
+    @Param({"100000"})
+    public int entries;
+
+    /** Share of attempts that come from a whitelisted address. */
+    @Param({"0.9", "0.1"})
+    public double allowedShare;
+
+    /** Whether decisions are published to the login attempt log. */
+    @Param({"false", "true"})
+    public boolean attemptLog;
+
+    /** Whether logins are checked by address and player UUID rather than by address alone. */
+    @Param({"false", "true"})
+    public boolean strict;
+
+    private static final UUID STRANGER = UUID.randomUUID();
+
+    private BenchmarkDatabase database;
+    private LoginGate gate;
+    private AttemptLog log;
+    private InetAddress[] addresses;
+    private UUID[] players;
+
+    @Setup(Level.Trial)
+    public void setUp() throws UnknownHostException, StorageException {
+        database = new BenchmarkDatabase(entries);
+        log = new AttemptLog(database.resolve("attempts.db").toString(), Logger.getLogger("IPWhitelist-bench"),
+                new Metrics(), 65536, 1000, TimeUnit.DAYS.toMillis(1));
+        if (attemptLog) {
+            log.start();
+        }
+        // Keep the flood guard out of the way; it has its own cost profile
+        FloodGuard floodGuard = new FloodGuard(new FloodGuard.Settings(false, Double.MAX_VALUE, 0, 0, 1, 1, 1, 1),
+                Logger.getLogger("IPWhitelist-bench"));
+        ConfigSnapshot settings = ConfigSnapshot.load(new MapConfig(Map.of("strict-mode", strict)));
+        gate = new LoginGate(Logger.getLogger("IPWhitelist-bench"), database.manager, database.bindings, floodGuard,
+                new Metrics(), log, () -> settings);
+
+        addresses = new InetAddress[4096];
+        players = new UUID[addresses.length];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < addresses.length; i++) {
+            int address;
+            if (random.nextDouble() < allowedShare) {
+                int entry = random.nextInt(entries);
+                address = BenchmarkDatabase.FIRST_ADDRESS + entry;
+                players[i] = BenchmarkDatabase.playerId(entry);
+            } else {
+                address = 0xC0000000 + random.nextInt(1 << 20);
+                players[i] = STRANGER;
+            }
+            addresses[i] = InetAddress.getByName(IPAddresses.formatIPv4(address));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        log.close();
+        database.close();
+    }
+
+    @Benchmark
+    public Component onPreLogin() {
+        int i = ThreadLocalRandom.current().nextInt(addresses.length);
+        return gate.check(addresses[i], "player", players[i]);
+    }
+}
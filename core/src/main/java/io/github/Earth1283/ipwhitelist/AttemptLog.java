@@ -0,0 +1,349 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Audit log of pre-login decisions, kept in its own SQLite file so it never
+ * competes with whitelist writes.
+ * <p>
+ * The login thread only publishes the attempt to a {@link RingBuffer}. A
+ * background thread drains it and inserts each batch in one transaction, and
+ * prunes rows past the retention period. If the writer falls behind and the
+ * buffer fills up, further attempts are counted and dropped, so logging can
+ * never delay or fail a login.
+ */
+public class AttemptLog {
+    public enum Outcome {
+        ALLOWED,
+        DENIED,
+        THROTTLED // No longer recorded; kept so older rows read back
+    }
+
+    /** One login decision as published by the login thread. */
+    public record Attempt(long time, InetAddress address, String playerName, UUID playerId, Outcome outcome) {
+    }
+
+    /**
+     * @param key      an address, or a /24 (IPv4) or /48 (IPv6) subnet
+     * @param attempts denied attempts from it in the window
+     */
+    public record Offender(CidrRange key, long attempts) {
+    }
+
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long WARN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int PRUNE_CHUNK = 5_000;
+    private static final List<SchemaMigrations.Migration> MIGRATIONS = List.of(
+            new SchemaMigrations.Migration(1, "initial schema", AttemptLog::createSchema));
+    private static final String INSERT = "INSERT INTO attempts(time, address, subnet, player_name, player_uuid, "
+            + "outcome) VALUES(?, ?, ?, ?, ?, ?)";
+
+    private final String url;
+    private final Logger logger;
+    private final Metrics metrics;
+    private final RingBuffer<Attempt> buffer;
+    private final int batchSize;
+    private final long retentionMillis;
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running;
+    private Thread writer;
+    private PooledConnection writeConnection;
+    private ReadPool readPool;
+
+    /**
+     * @param databaseFile    path of the SQLite file for attempts
+     * @param bufferSize      attempts held for the writer before new ones are dropped
+     * @param retentionMillis how long attempts are kept
+     */
+    public AttemptLog(String databaseFile, Logger logger, Metrics metrics, int bufferSize, int batchSize,
+            long retentionMillis) {
+        this.url = "jdbc:sqlite:" + databaseFile;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.buffer = new RingBuffer<>(Math.min(bufferSize, 1 << 22));
+        this.batchSize = Math.max(1, batchSize);
+        this.retentionMillis = retentionMillis;
+    }
+
+    /** Opens the database and starts the writer. Until then {@link #record} does nothing. */
+    public void start() throws StorageException {
+        List<PooledConnection> readers = new ArrayList<>();
+        try {
+            Connection connection = openConnection();
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+                // Losing the last moments of audit data in a power cut is acceptable; fsync per batch is not needed
+                stmt.execute("PRAGMA synchronous = OFF");
+            }
+            SchemaMigrations.migrate(connection, "attempt log", MIGRATIONS, logger);
+            writeConnection = new PooledConnection(connection);
+            for (int i = 0; i < 2; i++) {
+                Connection reader = openConnection();
+                try (Statement stmt = reader.createStatement()) {
+                    stmt.execute("PRAGMA query_only = ON");
+                }
+                readers.add(new PooledConnection(reader));
+            }
+            readPool = new ReadPool(readers);
+        } catch (SQLException e) {
+            for (PooledConnection reader : readers) {
+                try {
+                    reader.close();
+                } catch (SQLException ignored) {
+                    // Already failing; the original error is the one worth reporting
+                }
+            }
+            throw new StorageException("Could not open " + url, e);
+        }
+        running = true;
+        writer = new Thread(this::run, "IPWhitelist-attempt-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static void createSchema(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS attempts (
+                        id INTEGER PRIMARY KEY,
+                        time INTEGER NOT NULL,
+                        address BLOB NOT NULL,
+                        subnet BLOB NOT NULL,
+                        player_name TEXT,
+                        player_uuid TEXT,
+                        outcome INTEGER NOT NULL
+                    )
+                    """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_attempts_time ON attempts(time)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_attempts_address ON attempts(address, time)");
+            // Covers the top-offender queries, which only look at denials
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_attempts_denied ON attempts(time, subnet, address) "
+                    + "WHERE outcome != 0");
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = 5000");
+        }
+        return connection;
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Publishes a decision for the writer. Safe from any thread; never blocks
+     * and never throws.
+     */
+    public void record(InetAddress address, String playerName, UUID playerId, Outcome outcome) {
+        if (!running) {
+            return;
+        }
+        if (!buffer.offer(new Attempt(System.currentTimeMillis(), address, playerName, playerId, outcome))) {
+            dropped.increment();
+        }
+    }
+
+    /** Attempts dropped because the buffer was full. */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        List<Attempt> batch = new ArrayList<>(batchSize);
+        long nextPrune = System.currentTimeMillis();
+        long nextWarning = 0;
+        long droppedReported = 0;
+        while (true) {
+            boolean idle = buffer.drainTo(batch, batchSize) == 0;
+            if (!idle) {
+                insert(batch);
+                batch.clear();
+            } else if (!running) {
+                break;
+            }
+            long now = System.currentTimeMillis();
+            if (now >= nextPrune) {
+                prune(now - retentionMillis);
+                nextPrune = now + PRUNE_INTERVAL_MILLIS;
+            }
+            long droppedNow = dropped.sum();
+            if (droppedNow > droppedReported && now >= nextWarning) {
+                logger.warning("Dropped " + (droppedNow - droppedReported)
+                        + " login attempts from the audit log; its writer is falling behind.");
+                droppedReported = droppedNow;
+                nextWarning = now + WARN_INTERVAL_MILLIS;
+            }
+            if (idle) {
+                LockSupport.parkNanos(FLUSH_INTERVAL_NANOS);
+            }
+        }
+    }
+
+    private void insert(List<Attempt> batch) {
+        long start = System.nanoTime();
+        Connection connection = writeConnection.connection();
+        try {
+            connection.setAutoCommit(false);
+            PreparedStatement pstmt = writeConnection.prepare(INSERT);
+            for (Attempt attempt : batch) {
+                byte[] address = attempt.address().getAddress();
+                pstmt.setLong(1, attempt.time());
+                pstmt.setBytes(2, address);
+                pstmt.setBytes(3, subnetOf(attempt.address()).toBytes());
+                pstmt.setString(4, attempt.playerName());
+                pstmt.setString(5, attempt.playerId() != null ? attempt.playerId().toString() : null);
+                pstmt.setInt(6, attempt.outcome().ordinal());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            logger.severe("Error writing login attempts: " + e.getMessage());
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+                // The batch is lost either way
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+                // Reported by the next batch if the connection is broken
+            }
+            metrics.histogram("attempts.flush").recordSince(start);
+        }
+    }
+
+    /** Deletes attempts older than {@code cutoff} in chunks, so inserts are never held up for long. */
+    private void prune(long cutoff) {
+        long start = System.nanoTime();
+        try {
+            PreparedStatement pstmt = writeConnection.prepare("DELETE FROM attempts WHERE id IN "
+                    + "(SELECT id FROM attempts WHERE time < ? LIMIT " + PRUNE_CHUNK + ")");
+            int removed;
+            do {
+                pstmt.setLong(1, cutoff);
+                removed = pstmt.executeUpdate();
+            } while (removed == PRUNE_CHUNK && running);
+        } catch (SQLException e) {
+            logger.severe("Error pruning login attempts: " + e.getMessage());
+        } finally {
+            metrics.histogram("attempts.prune").recordSince(start);
+        }
+    }
+
+    /** The /24 or /48 that login floods are aggregated by, as {@link FloodGuard} does. */
+    private static CidrRange subnetOf(InetAddress address) {
+        CidrRange single = CidrRange.fromBytes(address.getAddress(), address instanceof Inet4Address ? 32 : 128);
+        return single.ipv6()
+                ? CidrRange.ofIPv6(single.high(), single.low(), 48)
+                : CidrRange.ofIPv4(single.ipv4Network(), 24);
+    }
+
+    /**
+     * Sources with the most denied attempts since {@code since}.
+     *
+     * @param bySubnet group by /24 and /48 subnet rather than by address
+     */
+    public List<Offender> topDenied(long since, boolean bySubnet, int limit) throws StorageException {
+        String column = bySubnet ? "subnet" : "address";
+        return read(connection -> {
+            PreparedStatement pstmt = connection.prepare("SELECT " + column + ", COUNT(*) AS attempts FROM attempts "
+                    + "WHERE time >= ? AND outcome != 0 GROUP BY " + column + " ORDER BY attempts DESC LIMIT ?");
+            pstmt.setLong(1, since);
+            pstmt.setInt(2, limit);
+            List<Offender> offenders = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    byte[] key = rs.getBytes(1);
+                    int prefixLength = bySubnet ? (key.length == 4 ? 24 : 48) : key.length * 8;
+                    offenders.add(new Offender(CidrRange.fromBytes(key, prefixLength), rs.getLong(2)));
+                }
+            }
+            return offenders;
+        });
+    }
+
+    /** The latest attempts, newest first, optionally only those from {@code address}. */
+    public List<Attempt> recent(InetAddress address, int limit) throws StorageException {
+        return read(connection -> {
+            PreparedStatement pstmt;
+            if (address == null) {
+                pstmt = connection.prepare("SELECT time, address, player_name, player_uuid, outcome FROM attempts "
+                        + "ORDER BY id DESC LIMIT ?");
+                pstmt.setInt(1, limit);
+            } else {
+                pstmt = connection.prepare("SELECT time, address, player_name, player_uuid, outcome FROM attempts "
+                        + "WHERE address = ? ORDER BY time DESC LIMIT ?");
+                pstmt.setBytes(1, address.getAddress());
+                pstmt.setInt(2, limit);
+            }
+            List<Attempt> attempts = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String uuid = rs.getString("player_uuid");
+                    attempts.add(new Attempt(rs.getLong("time"), InetAddress.getByAddress(rs.getBytes("address")),
+                            rs.getString("player_name"), uuid != null ? UUID.fromString(uuid) : null,
+                            Outcome.values()[rs.getInt("outcome")]));
+                }
+            } catch (UnknownHostException e) {
+                throw new SQLException("Malformed address in attempts table", e);
+            }
+            return attempts;
+        });
+    }
+
+    private <T> T read(ReadPool.ReadOperation<T> operation) throws StorageException {
+        if (readPool == null) {
+            throw new StorageException("The attempt log is disabled", null);
+        }
+        long start = System.nanoTime();
+        try {
+            return readPool.read(operation);
+        } catch (SQLException e) {
+            throw new StorageException("Error reading login attempts", e);
+        } finally {
+            metrics.histogram("attempts.query").recordSince(start);
+        }
+    }
+
+    /** Stops accepting attempts, writes out what is buffered and closes the database. */
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writeConnection.close();
+            readPool.close();
+        } catch (SQLException e) {
+            logger.severe("Error closing attempt log: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Single writer thread owning the only SQLite connection allowed to mutate the
+ * database. Writes queued while a transaction is in progress are committed
+ * together in the next one, so a burst of commands costs one fsync rather
+ * than one per statement.
+ * <p>
+ * Each operation runs inside its own savepoint: a failing operation is rolled
+ * back on its own and fails only its own future. Hooks an operation registers
+ * in {@code afterCommit} run on the writer thread, in commit order, once the
+ * transaction is durable; that is where in-memory state is updated.
+ * <p>
+ * An optional {@code prologue} runs at the start of every transaction, before
+ * the queued operations, and its hooks run before theirs. If it fails the
+ * whole batch fails.
+ */
+final class BatchingWriter {
+    @FunctionalInterface
+    interface WriteOperation<T> {
+        T execute(PooledConnection connection, List<Runnable> afterCommit) throws SQLException;
+    }
+
+    private record PendingWrite<T>(WriteOperation<T> operation, CompletableFuture<T> future) {
+    }
+
+    private final PooledConnection connection;
+    private final WriteOperation<?> prologue;
+    private final int maxBatchSize;
+    private final Logger logger;
+    private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    BatchingWriter(PooledConnection connection, WriteOperation<?> prologue, int maxBatchSize, Logger logger) {
+        this.connection = connection;
+        this.prologue = prologue;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.logger = logger;
+        this.thread = new Thread(this::run, "IPWhitelist-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    <T> CompletableFuture<T> submit(WriteOperation<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new SQLException("Database is closed"));
+            return future;
+        }
+        queue.add(new PendingWrite<>(operation, future));
+        return future;
+    }
+
+    private void run() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                // Woken up by close(); the loop condition decides whether to keep draining
+            } finally {
+                batch.clear();
+            }
+        }
+        // Anything that slipped in after the final drain can no longer be written
+        PendingWrite<?> leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.future.completeExceptionally(new SQLException("Database is closed"));
+        }
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        Connection jdbc = connection.connection();
+        Object[] results = new Object[batch.size()];
+        Throwable[] failures = new Throwable[batch.size()];
+        List<List<Runnable>> hooks = new ArrayList<>(batch.size());
+        List<Runnable> prologueHooks = new ArrayList<>();
+        try {
+            jdbc.setAutoCommit(false);
+            if (prologue != null) {
+                prologue.execute(connection, prologueHooks);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                List<Runnable> afterCommit = new ArrayList<>();
+                hooks.add(afterCommit);
+                connection.execute("SAVEPOINT write_op");
+                try {
+                    results[i] = batch.get(i).operation.execute(connection, afterCommit);
+                    connection.execute("RELEASE write_op");
+                } catch (SQLException | RuntimeException e) {
+                    connection.execute("ROLLBACK TO write_op");
+                    connection.execute("RELEASE write_op");
+                    afterCommit.clear();
+                    failures[i] = e;
+                }
+            }
+            jdbc.commit();
+        } catch (SQLException | RuntimeException e) {
+            logger.severe("Error committing write batch: " + e.getMessage());
+            try {
+                jdbc.rollback();
+            } catch (SQLException ignored) {
+                // Nothing more we can do; every write in the batch is reported as failed
+            }
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        } finally {
+            try {
+                jdbc.setAutoCommit(true);
+            } catch (SQLException ignored) {
+                // Connection is unusable; later batches will fail and report it
+            }
+        }
+
+        runHooks(prologueHooks);
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures[i] != null) {
+                batch.get(i).future.completeExceptionally(failures[i]);
+                continue;
+            }
+            runHooks(hooks.get(i));
+            complete(batch.get(i), results[i]);
+        }
+    }
+
+    private void runHooks(List<Runnable> hooks) {
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                logger.severe("Error applying committed write: " + e.getMessage());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void complete(PendingWrite<T> pending, Object result) {
+        pending.future.complete((T) result);
+    }
+
+    /** Stops accepting writes, commits whatever is still queued and closes the connection. */
+    void close() throws SQLException {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("Timed out waiting for pending database writes.");
+            return;
+        }
+        connection.close();
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * An IPv4 or IPv6 network in CIDR notation. A plain address is treated as a
+ * /32 (IPv4) or /128 (IPv6). Parsing masks off host bits, so
+ * {@code 203.0.113.7/24} and {@code 203.0.113.0/24} describe (and are stored
+ * as) the same range.
+ * <p>
+ * Addresses are held as two longs: IPv4 networks live in the low 32 bits of
+ * {@code low} with {@code high} zero, IPv6 networks use all 128 bits.
+ */
+public record CidrRange(boolean ipv6, long high, long low, int prefixLength) {
+
+    public CidrRange {
+        if (prefixLength < 0 || prefixLength > (ipv6 ? 128 : 32)) {
+            throw new IllegalArgumentException("Invalid prefix length: " + prefixLength);
+        }
+        if (!ipv6 && (high != 0 || (low >>> 32) != 0)) {
+            throw new IllegalArgumentException("IPv4 network out of range");
+        }
+        high &= highMask(ipv6, prefixLength);
+        low &= lowMask(ipv6, prefixLength);
+    }
+
+    public static CidrRange ofIPv4(int address, int prefixLength) {
+        return new CidrRange(false, 0, Integer.toUnsignedLong(address), prefixLength);
+    }
+
+    public static CidrRange ofIPv6(long high, long low, int prefixLength) {
+        return new CidrRange(true, high, low, prefixLength);
+    }
+
+    /**
+     * Builds a range from raw network-order address bytes (4 or 16 of them), as
+     * stored in the {@code address} column.
+     */
+    public static CidrRange fromBytes(byte[] address, int prefixLength) {
+        if (address.length == 4) {
+            return ofIPv4((int) IPAddresses.readLong(address, 0, 4), prefixLength);
+        }
+        if (address.length == 16) {
+            return ofIPv6(IPAddresses.readLong(address, 0, 8), IPAddresses.readLong(address, 8, 8), prefixLength);
+        }
+        throw new IllegalArgumentException("Invalid address length: " + address.length);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not an IP address or CIDR range
+     */
+    public static CidrRange parse(String text) {
+        int slash = text.indexOf('/');
+        String address = slash < 0 ? text : text.substring(0, slash);
+        int prefixLength = -1;
+        if (slash >= 0) {
+            String prefix = text.substring(slash + 1);
+            if (prefix.isEmpty() || prefix.length() > 3 || !prefix.chars().allMatch(Character::isDigit)) {
+                throw new IllegalArgumentException("Invalid prefix length: " + text);
+            }
+            prefixLength = Integer.parseInt(prefix);
+        }
+
+        if (address.indexOf(':') < 0) {
+            return ofIPv4(IPAddresses.packIPv4(address), prefixLength < 0 ? 32 : prefixLength);
+        }
+
+        byte[] bytes = parseIPv6(address);
+        if (bytes.length == 4) {
+            // IPv4-mapped literal (::ffff:a.b.c.d); the JDK already unwrapped it
+            if (prefixLength >= 0 && prefixLength < 96) {
+                throw new IllegalArgumentException("Invalid prefix length for IPv4-mapped address: " + text);
+            }
+            return fromBytes(bytes, prefixLength < 0 ? 32 : prefixLength - 96);
+        }
+        return fromBytes(bytes, prefixLength < 0 ? 128 : prefixLength);
+    }
+
+    /**
+     * Returns the parsed range, or {@code null} if the text is not a valid address or range.
+     */
+    public static CidrRange tryParse(String text) {
+        try {
+            return parse(text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] parseIPv6(String address) {
+        // Only hand literals to the JDK so it can never fall back to a DNS lookup: it treats text
+        // as a literal only if it starts with a hex digit or ':', so anything else is refused here
+        if (address.charAt(0) == '.') {
+            throw new IllegalArgumentException("Invalid IPv6 address: " + address);
+        }
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (!(c == ':' || c == '.' || c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F')) {
+                throw new IllegalArgumentException("Invalid IPv6 address: " + address);
+            }
+        }
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid IPv6 address: " + address);
+        }
+    }
+
+    public boolean isSingleAddress() {
+        return prefixLength == (ipv6 ? 128 : 32);
+    }
+
+    /** The packed IPv4 network address; only meaningful when {@link #ipv6()} is false. */
+    public int ipv4Network() {
+        return (int) low;
+    }
+
+    /** High 64 bits of the last address in the range. */
+    public long lastHigh() {
+        return ipv6 ? high | ~highMask(true, prefixLength) : 0;
+    }
+
+    /** Low 64 bits of the last address in the range (IPv4: last address, unsigned). */
+    public long lastLow() {
+        long hostBits = ~lowMask(ipv6, prefixLength);
+        return low | (ipv6 ? hostBits : hostBits & 0xFFFFFFFFL);
+    }
+
+    /** Network-order address bytes, as stored in the {@code address} column. */
+    public byte[] toBytes() {
+        if (!ipv6) {
+            byte[] bytes = new byte[4];
+            IPAddresses.writeLong(bytes, 0, 4, low);
+            return bytes;
+        }
+        byte[] bytes = new byte[16];
+        IPAddresses.writeLong(bytes, 0, 8, high);
+        IPAddresses.writeLong(bytes, 8, 8, low);
+        return bytes;
+    }
+
+    private static long highMask(boolean ipv6, int prefixLength) {
+        if (!ipv6) {
+            return 0;
+        }
+        if (prefixLength >= 64) {
+            return -1L;
+        }
+        return prefixLength == 0 ? 0 : -1L << (64 - prefixLength);
+    }
+
+    private static long lowMask(boolean ipv6, int prefixLength) {
+        if (!ipv6) {
+            return prefixLength == 0 ? 0 : (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
+        }
+        return prefixLength <= 64 ? 0 : -1L << (128 - prefixLength);
+    }
+
+    /** Canonical text form; single addresses are written without a prefix. */
+    @Override
+    public String toString() {
+        String ip = ipv6 ? IPAddresses.formatIPv6(high, low) : IPAddresses.formatIPv4(ipv4Network());
+        return isSingleAddress() ? ip : ip + "/" + prefixLength;
+    }
+}
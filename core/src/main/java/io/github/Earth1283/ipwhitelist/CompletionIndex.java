@@ -0,0 +1,78 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sorted in-memory index of whitelisted IPs and associated player names for
+ * tab completion. Kept current through {@link WhitelistListener} callbacks, so
+ * a completion is a skip-list range scan of at most {@code limit} elements and
+ * never touches the database. All methods are thread-safe, which makes it
+ * usable from Paper's async tab-complete event.
+ */
+public class CompletionIndex implements WhitelistListener {
+    /** A player name as first written, and how many entries reference it. */
+    private record PlayerName(String displayName, int entries) {
+    }
+
+    private final ConcurrentSkipListSet<String> ips = new ConcurrentSkipListSet<>();
+    // Keyed by lower-case name, since player matching is case-insensitive
+    private final ConcurrentSkipListMap<String, PlayerName> players = new ConcurrentSkipListMap<>();
+
+    /** Returns up to {@code limit} IPs starting with {@code prefix}, in sorted order. */
+    public List<String> completeIPs(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        for (String ip : ips.tailSet(key)) {
+            if (result.size() >= limit || !ip.startsWith(key)) {
+                break;
+            }
+            result.add(ip);
+        }
+        return result;
+    }
+
+    /** Returns up to {@code limit} player names starting with {@code prefix}, ignoring case. */
+    public List<String> completePlayers(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        for (var entry : players.tailMap(key).entrySet()) {
+            if (result.size() >= limit || !entry.getKey().startsWith(key)) {
+                break;
+            }
+            result.add(entry.getValue().displayName());
+        }
+        return result;
+    }
+
+    @Override
+    public void entryAdded(WhitelistEntry entry) {
+        ips.add(entry.range().toString());
+        String player = entry.playerName();
+        if (player != null && !player.isEmpty()) {
+            players.merge(player.toLowerCase(Locale.ROOT), new PlayerName(player, 1),
+                    (existing, added) -> new PlayerName(existing.displayName(), existing.entries() + 1));
+        }
+    }
+
+    @Override
+    public void entryRemoved(WhitelistEntry entry) {
+        ips.remove(entry.range().toString());
+        String player = entry.playerName();
+        if (player != null && !player.isEmpty()) {
+            players.computeIfPresent(player.toLowerCase(Locale.ROOT), (key, existing) ->
+                    existing.entries() > 1 ? new PlayerName(existing.displayName(), existing.entries() - 1) : null);
+        }
+    }
+
+    @Override
+    public void entriesLoaded(Collection<WhitelistEntry> entries) {
+        ips.clear();
+        players.clear();
+        entries.forEach(this::entryAdded);
+    }
+}
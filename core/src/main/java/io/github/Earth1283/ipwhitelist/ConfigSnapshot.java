@@ -0,0 +1,31 @@
+package io.github.Earth1283.ipwhitelist;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+/**
+ * The parts of config.yml read while the plugin runs, parsed once per load.
+ * Immutable: {@link IPWhitelistCore#reload} builds a new instance and swaps
+ * it in with one volatile write, so logins and commands never read YAML or
+ * parse MiniMessage, and never see half of an old config and half of a new one.
+ *
+ * @param kickMessage     shown to players who are not whitelisted
+ * @param throttleMessage shown to connections refused by flood protection
+ * @param debug           whether every login decision is logged
+ * @param strict          whether entries bound to a player admit only that player
+ */
+public record ConfigSnapshot(Component kickMessage, Component throttleMessage, boolean debug, boolean strict,
+        int listPageSize, Messages messages) {
+    public static ConfigSnapshot load(PluginConfig config) {
+        MiniMessage miniMessage = MiniMessage.miniMessage();
+        return new ConfigSnapshot(
+                miniMessage.deserialize(config.getString("kick-message",
+                        "<red>You are not whitelisted on this server.</red>")),
+                miniMessage.deserialize(config.getString("flood-protection.throttle-message",
+                        "<red>Too many connection attempts. Please wait and try again.</red>")),
+                config.getBoolean("debug-mode", false),
+                config.getBoolean("strict-mode", false),
+                Math.max(1, config.getInt("list-page-size", 10)),
+                new Messages(config, miniMessage));
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.Earth1283.ipwhitelist;
+
+import net.kyori.adventure.text.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class ConfirmationManager {
+    private static final long EXPIRY_MILLIS = 30_000;
+
+    // Written from the main thread, expired from the timing wheel thread
+    private final Map<UUID, Confirmation> pendingConfirmations = new ConcurrentHashMap<>();
+    private final TimingWheel wheel;
+    private final Consumer<List<UUID>> expire = this::expire;
+
+    private record Confirmation(Runnable action, long timestamp, TimingWheel.Timeout<UUID> timeout) {
+    }
+
+    public ConfirmationManager(TimingWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    public void requestConfirmation(Sender sender, Runnable action, Component message) {
+        // The console confirms too, under its own constant id
+        UUID id = sender.uniqueId();
+        long now = System.currentTimeMillis();
+        Confirmation confirmation = new Confirmation(action, now, wheel.schedule(now + EXPIRY_MILLIS, id, expire));
+        Confirmation replaced = pendingConfirmations.put(id, confirmation);
+        if (replaced != null) {
+            wheel.cancel(replaced.timeout);
+        }
+        sender.sendMessage(message);
+    }
+
+    /**
+     * Runs the pending action for the sender. Actions are expected to hand their
+     * storage work to the {@link StorageExecutor} rather than block the caller.
+     */
+    public boolean confirm(Sender sender) {
+        UUID id = sender.uniqueId();
+        Confirmation confirmation = pendingConfirmations.remove(id);
+        if (confirmation != null) {
+            wheel.cancel(confirmation.timeout);
+            confirmation.action.run();
+            return true;
+        }
+        return false;
+    }
+
+    private void expire(List<UUID> ids) {
+        long cutoff = System.currentTimeMillis() - EXPIRY_MILLIS;
+        for (UUID id : ids) {
+            // Unless a newer request replaced the one that timed out
+            pendingConfirmations.computeIfPresent(id,
+                    (key, confirmation) -> confirmation.timestamp <= cutoff ? null : confirmation);
+        }
+    }
+}
@@ -0,0 +1,868 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * SQLite-backed whitelist storage.
+ * <p>
+ * The database runs in WAL mode. Reads borrow a connection from a small
+ * {@link ReadPool}; every mutation is queued to the {@link BatchingWriter},
+ * which owns the only writable connection and commits queued writes together.
+ * Public methods block until their work is done and are meant to be called
+ * from background threads; the pre-login check only reads the in-memory
+ * {@link WhitelistIndex}.
+ * <p>
+ * Every mutation is also appended to the {@code whitelist_changes} log under a
+ * monotonically increasing sequence number, so several servers can share one
+ * database file. Each writer transaction is opened {@code IMMEDIATE} and first
+ * applies whatever other servers committed since {@link #appliedSeq}; the
+ * in-memory state therefore always follows the log in sequence order, and
+ * {@link #pollChanges()} only has to read the deltas.
+ */
+public class DatabaseManager implements WhitelistStorage {
+    // OR IGNORE covers both the ip text and the (address, prefix_length) unique keys
+    private static final String INSERT_ENTRY = "INSERT OR IGNORE INTO whitelist"
+            + "(ip, added_by, player_name, timestamp, address, prefix_length, expires_at, player_uuid) "
+            + "VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String LOG_CHANGE = "INSERT INTO whitelist_changes"
+            + "(op, address, prefix_length, player_name, added_by, timestamp, changed_at, expires_at, player_uuid) "
+            + "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // What readEntry() needs, in both the whitelist and the change log
+    private static final String ENTRY_COLUMNS = "address, prefix_length, player_name, player_uuid, added_by, "
+            + "timestamp, expires_at";
+    private static final int CHANGE_REMOVED = 0;
+    private static final int CHANGE_ADDED = 1;
+
+    private final String url;
+    private final Logger logger;
+    private final int readConnections;
+    private final int writeBatchSize;
+    private final Metrics metrics;
+    private final WhitelistIndex index = new WhitelistIndex();
+    private final List<WhitelistListener> listeners = new CopyOnWriteArrayList<>();
+    private ReadPool readPool;
+    private BatchingWriter writer;
+    // Highest change-log sequence reflected in memory; -1 until loadIndex(). Advanced on the writer thread only
+    private volatile long appliedSeq = -1;
+    private final AtomicBoolean syncPending = new AtomicBoolean();
+
+    /**
+     * @param databaseFile path of the SQLite file; servers pointing at the same file share one whitelist
+     */
+    public DatabaseManager(String databaseFile, Logger logger, Metrics metrics, int readConnections,
+            int writeBatchSize) {
+        this.url = "jdbc:sqlite:" + databaseFile;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.readConnections = Math.max(1, readConnections);
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    @Override
+    public void init() throws StorageException {
+        if (writer != null) {
+            return;
+        }
+        List<PooledConnection> readers = new ArrayList<>();
+        try {
+            // IMMEDIATE takes the write lock when a batch starts, before it catches up with other servers
+            Properties writerProperties = new Properties();
+            writerProperties.setProperty("transaction_mode", "IMMEDIATE");
+            Connection connection = openConnection(writerProperties);
+            try (Statement stmt = connection.createStatement()) {
+                // WAL lets the pooled readers run alongside the writer; it persists in the file
+                stmt.execute("PRAGMA journal_mode = WAL");
+                stmt.execute("PRAGMA synchronous = NORMAL");
+            }
+            SchemaMigrations.migrate(connection, "whitelist database", migrations(), logger);
+
+            for (int i = 0; i < readConnections; i++) {
+                Connection reader = openConnection(new Properties());
+                try (Statement stmt = reader.createStatement()) {
+                    stmt.execute("PRAGMA query_only = ON");
+                }
+                readers.add(new PooledConnection(reader));
+            }
+            readPool = new ReadPool(readers);
+            writer = new BatchingWriter(new PooledConnection(connection), this::catchUp, writeBatchSize, logger);
+        } catch (SQLException e) {
+            logger.severe("Could not connect to SQLite database: " + e.getMessage());
+            for (PooledConnection reader : readers) {
+                try {
+                    reader.close();
+                } catch (SQLException ignored) {
+                    // Already failing; the original error is the one worth reporting
+                }
+            }
+            throw new StorageException("Could not open " + url, e);
+        }
+    }
+
+    private Connection openConnection(Properties properties) throws SQLException {
+        Connection connection = DriverManager.getConnection(url, properties);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = 5000");
+        }
+        return connection;
+    }
+
+    /** Schema history of the whitelist database; see {@link SchemaMigrations}. */
+    private List<SchemaMigrations.Migration> migrations() {
+        return List.of(
+                new SchemaMigrations.Migration(1, "initial schema", this::createInitialSchema),
+                new SchemaMigrations.Migration(2, "normalised player column, player UUID and lookup indexes",
+                        DatabaseManager::rebuildWhitelistTable),
+                new SchemaMigrations.Migration(3, "player UUID in the change log",
+                        DatabaseManager::addChangePlayerId));
+    }
+
+    /**
+     * Version 1: the schema as it was before versioning, created or brought up
+     * to date column by column, since files from before then have no version.
+     */
+    private void createInitialSchema(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS whitelist (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        ip TEXT NOT NULL UNIQUE,
+                        player_name TEXT,
+                        added_by TEXT,
+                        timestamp LONG,
+                        address BLOB,
+                        prefix_length INTEGER,
+                        expires_at INTEGER
+                    );
+                    """);
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS whitelist_changes (
+                        seq INTEGER PRIMARY KEY AUTOINCREMENT,
+                        op INTEGER NOT NULL,
+                        address BLOB NOT NULL,
+                        prefix_length INTEGER NOT NULL,
+                        player_name TEXT,
+                        added_by TEXT,
+                        timestamp INTEGER,
+                        changed_at INTEGER NOT NULL,
+                        expires_at INTEGER
+                    );
+                    """);
+            // Bookkeeping shared by all servers, e.g. how far the change log has been compacted
+            stmt.execute("CREATE TABLE IF NOT EXISTS whitelist_sync (key TEXT PRIMARY KEY, value INTEGER NOT NULL)");
+            if (!SchemaMigrations.hasColumn(connection, "whitelist", "player_name")) {
+                stmt.execute("ALTER TABLE whitelist ADD COLUMN player_name TEXT");
+            }
+            if (!SchemaMigrations.hasColumn(connection, "whitelist", "address")) {
+                stmt.execute("ALTER TABLE whitelist ADD COLUMN address BLOB");
+                stmt.execute("ALTER TABLE whitelist ADD COLUMN prefix_length INTEGER");
+            }
+            if (!SchemaMigrations.hasColumn(connection, "whitelist", "expires_at")) {
+                stmt.execute("ALTER TABLE whitelist ADD COLUMN expires_at INTEGER");
+            }
+            if (!SchemaMigrations.hasColumn(connection, "whitelist_changes", "expires_at")) {
+                stmt.execute("ALTER TABLE whitelist_changes ADD COLUMN expires_at INTEGER");
+            }
+            backfillAddresses(connection);
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_whitelist_address ON whitelist(address, prefix_length)");
+        }
+    }
+
+    /**
+     * Fills in the binary address of rows written before it existed and rewrites
+     * their text form canonically. Rows that collapse onto an existing entry once
+     * normalised (e.g. zero-padded octets) are dropped as duplicates.
+     */
+    private void backfillAddresses(Connection connection) throws SQLException {
+        List<Object[]> pending = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT id, ip FROM whitelist WHERE address IS NULL")) {
+            while (rs.next()) {
+                pending.add(new Object[] { rs.getLong("id"), rs.getString("ip") });
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        logger.info("Migrating database: Normalising " + pending.size() + " addresses...");
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE whitelist SET ip = ?, address = ?, prefix_length = ? WHERE id = ?");
+                PreparedStatement delete = connection.prepareStatement("DELETE FROM whitelist WHERE id = ?")) {
+            for (Object[] row : pending) {
+                long id = (long) row[0];
+                CidrRange range = CidrRange.tryParse((String) row[1]);
+                if (range == null) {
+                    logger.warning("Skipping malformed whitelist entry: " + row[1]);
+                    continue;
+                }
+                update.setString(1, range.toString());
+                update.setBytes(2, range.toBytes());
+                update.setInt(3, range.prefixLength());
+                update.setLong(4, id);
+                try {
+                    update.executeUpdate();
+                } catch (SQLException e) {
+                    if (!e.getMessage().contains("UNIQUE constraint failed")) {
+                        throw e;
+                    }
+                    logger.info("Dropping duplicate whitelist entry: " + row[1]);
+                    delete.setLong(1, id);
+                    delete.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Version 2: SQLite cannot change a column's type, so the table is rebuilt
+     * to declare {@code timestamp} as INTEGER rather than the non-SQLite LONG.
+     * It gains {@code player_key}, the player name trimmed and lower-cased,
+     * which is generated so that every writer (including older plugin versions
+     * sharing the file) keeps it current, and an empty {@code player_uuid}.
+     * Player and added-by lookups become index searches.
+     */
+    private static void rebuildWhitelistTable(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE whitelist_new (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        ip TEXT NOT NULL UNIQUE,
+                        player_name TEXT,
+                        added_by TEXT,
+                        timestamp INTEGER,
+                        address BLOB,
+                        prefix_length INTEGER,
+                        expires_at INTEGER,
+                        player_uuid TEXT,
+                        player_key TEXT GENERATED ALWAYS AS (lower(trim(player_name))) VIRTUAL
+                    );
+                    """);
+            stmt.execute("""
+                    INSERT INTO whitelist_new(id, ip, player_name, added_by, timestamp, address, prefix_length,
+                        expires_at)
+                    SELECT id, ip, player_name, added_by, CAST(timestamp AS INTEGER), address, prefix_length,
+                        expires_at
+                    FROM whitelist
+                    """);
+            stmt.execute("DROP TABLE whitelist");
+            stmt.execute("ALTER TABLE whitelist_new RENAME TO whitelist");
+            stmt.execute("CREATE UNIQUE INDEX idx_whitelist_address ON whitelist(address, prefix_length)");
+            stmt.execute("CREATE INDEX idx_whitelist_player ON whitelist(player_key)");
+            stmt.execute("CREATE INDEX idx_whitelist_player_uuid ON whitelist(player_uuid) "
+                    + "WHERE player_uuid IS NOT NULL");
+            // NOCASE to match the by: filter of /ipwhitelist list
+            stmt.execute("CREATE INDEX idx_whitelist_added_by ON whitelist(added_by COLLATE NOCASE, timestamp)");
+        }
+    }
+
+    /**
+     * Version 3: entries can be bound to a player's UUID, which other servers
+     * sharing the file need to see in the change log as well.
+     */
+    private static void addChangePlayerId(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE whitelist_changes ADD COLUMN player_uuid TEXT");
+        }
+    }
+
+    /**
+     * Runs a write on the writer thread and waits for its transaction to commit.
+     * Failures are logged and reported as {@code fallback}. The wait, including
+     * time queued behind other writes, is recorded under {@code metric}.
+     */
+    private <T> T write(String metric, BatchingWriter.WriteOperation<T> operation, T fallback, String error) {
+        long start = System.nanoTime();
+        try {
+            return writer.submit(operation).join();
+        } catch (CompletionException e) {
+            logger.severe(error + ": " + e.getCause().getMessage());
+            return fallback;
+        } finally {
+            metrics.histogram(metric).recordSince(start);
+        }
+    }
+
+    private <T> T read(String metric, ReadPool.ReadOperation<T> operation, T fallback, String error) {
+        long start = System.nanoTime();
+        try {
+            return readPool.read(operation);
+        } catch (SQLException e) {
+            logger.severe(error + ": " + e.getMessage());
+            return fallback;
+        } finally {
+            metrics.histogram(metric).recordSince(start);
+        }
+    }
+
+    /**
+     * Loads every whitelisted IP into the in-memory index and hands the full
+     * entry list to registered listeners. Called once on enable; afterwards both
+     * are kept current by the mutation methods below and by changes from other
+     * servers sharing the database.
+     */
+    @Override
+    public int loadIndex() {
+        write("db.load_index", (connection, afterCommit) -> {
+            reloadAll(connection, afterCommit);
+            return null;
+        }, null, "Error loading whitelist index");
+        return index.size();
+    }
+
+    /**
+     * Like {@link #loadIndex()} but without waiting, for when a snapshot already
+     * answers lookups. The load is the first write queued, so every mutation
+     * submitted afterwards is applied on top of the loaded state.
+     *
+     * @return completes with the number of loaded entries once they are live, or
+     *         exceptionally if the load failed, leaving any snapshot attached
+     */
+    @Override
+    public CompletableFuture<Integer> loadIndexInBackground() {
+        long start = System.nanoTime();
+        return writer.submit((connection, afterCommit) -> {
+            reloadAll(connection, afterCommit);
+            return null;
+        }).whenComplete((result, error) -> metrics.histogram("db.load_index").recordSince(start))
+                .thenApply(result -> index.size());
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return appliedSeq >= 0;
+    }
+
+    /** Reads the whole whitelist and the change-log head in one transaction, so they match. */
+    private void reloadAll(PooledConnection connection, List<Runnable> afterCommit) throws SQLException {
+        List<WhitelistEntry> entries = new ArrayList<>();
+        PreparedStatement pstmt = connection.prepare("SELECT " + ENTRY_COLUMNS
+                + " FROM whitelist WHERE address IS NOT NULL");
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                entries.add(readEntry(rs));
+            }
+        }
+        long head = headSeq(connection);
+        afterCommit.add(() -> {
+            index.replaceAll(entries.stream().map(WhitelistEntry::range).toList());
+            // The live sets are authoritative from here on
+            index.detachSnapshot();
+            for (WhitelistListener listener : listeners) {
+                listener.entriesLoaded(entries);
+            }
+            appliedSeq = head;
+        });
+    }
+
+    /**
+     * Writer prologue: queues every change committed since {@link #appliedSeq}
+     * (by this or any other server) to be applied in sequence order.
+     */
+    private Void catchUp(PooledConnection connection, List<Runnable> afterCommit) throws SQLException {
+        long from = appliedSeq;
+        if (from < 0) {
+            return null; // Nothing loaded yet; loadIndex() reads everything
+        }
+        if (from < compactedThrough(connection)) {
+            // Changes this server never saw have been compacted away
+            logger.info("Whitelist change log was compacted past this server's position; reloading.");
+            reloadAll(connection, afterCommit);
+            return null;
+        }
+        PreparedStatement pstmt = connection.prepare("SELECT seq, op, " + ENTRY_COLUMNS
+                + " FROM whitelist_changes WHERE seq > ? ORDER BY seq");
+        pstmt.setLong(1, from);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                long seq = rs.getLong("seq");
+                boolean added = rs.getInt("op") == CHANGE_ADDED;
+                WhitelistEntry entry = readEntry(rs);
+                afterCommit.add(() -> applyChange(seq, added, entry));
+            }
+        }
+        return null;
+    }
+
+    private long headSeq(PooledConnection connection) throws SQLException {
+        PreparedStatement pstmt = connection.prepare(
+                "SELECT seq FROM sqlite_sequence WHERE name = 'whitelist_changes'");
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private long compactedThrough(PooledConnection connection) throws SQLException {
+        PreparedStatement pstmt = connection.prepare(
+                "SELECT value FROM whitelist_sync WHERE key = 'compacted_through'");
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Appends a change to the log.
+     *
+     * @return its sequence number
+     */
+    private static long logChange(PooledConnection connection, int op, WhitelistEntry entry) throws SQLException {
+        PreparedStatement pstmt = connection.prepare(LOG_CHANGE);
+        bindChange(pstmt, op, entry);
+        pstmt.executeUpdate();
+        return lastInsertId(connection);
+    }
+
+    private static void bindChange(PreparedStatement pstmt, int op, WhitelistEntry entry) throws SQLException {
+        pstmt.setInt(1, op);
+        pstmt.setBytes(2, entry.range().toBytes());
+        pstmt.setInt(3, entry.range().prefixLength());
+        pstmt.setString(4, entry.playerName());
+        pstmt.setString(5, entry.addedBy());
+        pstmt.setLong(6, entry.timestamp());
+        pstmt.setLong(7, System.currentTimeMillis());
+        setExpiry(pstmt, 8, entry);
+        setPlayerId(pstmt, 9, entry);
+    }
+
+    private static long lastInsertId(PooledConnection connection) throws SQLException {
+        try (ResultSet rs = connection.prepare("SELECT last_insert_rowid()").executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Applies changes committed by other servers sharing the database. Costs a
+     * single read of the change-log head when there are none, and never waits
+     * for the writer.
+     */
+    @Override
+    public void pollChanges() {
+        long applied = appliedSeq;
+        if (applied < 0 || read("db.poll_changes", this::headSeq, -1L, "Error polling whitelist changes") <= applied) {
+            return;
+        }
+        if (!syncPending.compareAndSet(false, true)) {
+            return;
+        }
+        // An empty write is enough: the writer catches up at the start of every batch
+        writer.submit((connection, afterCommit) -> null).whenComplete((result, error) -> {
+            syncPending.set(false);
+            if (error != null) {
+                logger.severe("Error applying whitelist changes: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Drops change-log entries older than {@code retentionMillis}. A server
+     * that falls further behind than that reloads the whole whitelist when it
+     * next catches up.
+     *
+     * @return the number of log entries removed
+     */
+    @Override
+    public int compactChanges(long retentionMillis) {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        return write("db.compact_changes", (connection, afterCommit) -> {
+            PreparedStatement max = connection.prepare("SELECT MAX(seq) FROM whitelist_changes WHERE changed_at < ?");
+            max.setLong(1, cutoff);
+            long through;
+            try (ResultSet rs = max.executeQuery()) {
+                through = rs.next() ? rs.getLong(1) : 0; // MAX of no rows reads as 0
+            }
+            if (through == 0) {
+                return 0;
+            }
+            PreparedStatement delete = connection.prepare("DELETE FROM whitelist_changes WHERE seq <= ?");
+            delete.setLong(1, through);
+            int removed = delete.executeUpdate();
+            PreparedStatement mark = connection.prepare("INSERT INTO whitelist_sync(key, value) "
+                    + "VALUES('compacted_through', ?) ON CONFLICT(key) DO UPDATE SET value = MAX(value, excluded.value)");
+            mark.setLong(1, through);
+            mark.executeUpdate();
+            return removed;
+        }, 0, "Error compacting whitelist change log");
+    }
+
+    @Override
+    public WhitelistIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Registers a listener for committed changes. Register before {@link #loadIndex()}
+     * so the listener also receives the initial contents.
+     */
+    @Override
+    public void addListener(WhitelistListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Applies one committed change to memory; runs on the writer thread in sequence order. */
+    private void applyChange(long seq, boolean added, WhitelistEntry entry) {
+        if (added) {
+            index.add(entry.range());
+            for (WhitelistListener listener : listeners) {
+                listener.entryAdded(entry);
+            }
+        } else {
+            index.remove(entry.range());
+            for (WhitelistListener listener : listeners) {
+                listener.entryRemoved(entry);
+            }
+        }
+        appliedSeq = seq;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+            if (readPool != null) {
+                readPool.close();
+            }
+        } catch (SQLException e) {
+            logger.severe("Error closing database connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param ip a single IPv4/IPv6 address or CIDR range; stored in canonical form
+     */
+    @Override
+    public boolean addIP(String ip, String addedBy, String playerName, UUID playerId, long expiresAt) {
+        CidrRange range = CidrRange.parse(ip);
+        return write("db.add_ip", (connection, afterCommit) -> {
+            PreparedStatement pstmt = connection.prepare(INSERT_ENTRY);
+            WhitelistEntry entry = new WhitelistEntry(range, playerName, playerId, addedBy,
+                    System.currentTimeMillis(), expiresAt);
+            bindEntry(pstmt, entry);
+            if (pstmt.executeUpdate() == 0) {
+                return false; // Already exists
+            }
+            long seq = logChange(connection, CHANGE_ADDED, entry);
+            afterCommit.add(() -> applyChange(seq, true, entry));
+            return true;
+        }, false, "Error adding IP");
+    }
+
+    /**
+     * Inserts a batch of entries in one transaction, skipping any that already exist.
+     *
+     * @return the number of entries actually added
+     */
+    @Override
+    public int addIPs(List<WhitelistEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        return write("db.add_ips", (connection, afterCommit) -> {
+            PreparedStatement pstmt = connection.prepare(INSERT_ENTRY);
+            for (WhitelistEntry entry : entries) {
+                bindEntry(pstmt, entry);
+                pstmt.addBatch();
+            }
+            int[] counts = pstmt.executeBatch();
+            List<WhitelistEntry> added = new ArrayList<>();
+            PreparedStatement log = connection.prepare(LOG_CHANGE);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    added.add(entries.get(i));
+                    bindChange(log, CHANGE_ADDED, entries.get(i));
+                    log.addBatch();
+                }
+            }
+            if (added.isEmpty()) {
+                return 0;
+            }
+            log.executeBatch();
+            long seq = lastInsertId(connection);
+            afterCommit.add(() -> {
+                index.addAll(added.stream().map(WhitelistEntry::range).toList());
+                for (WhitelistListener listener : listeners) {
+                    added.forEach(listener::entryAdded);
+                }
+                appliedSeq = seq;
+            });
+            return added.size();
+        }, 0, "Error adding IPs");
+    }
+
+    private static void bindEntry(PreparedStatement pstmt, WhitelistEntry entry) throws SQLException {
+        pstmt.setString(1, entry.range().toString());
+        pstmt.setString(2, entry.addedBy());
+        pstmt.setString(3, entry.playerName()); // Can be null
+        pstmt.setLong(4, entry.timestamp());
+        pstmt.setBytes(5, entry.range().toBytes());
+        pstmt.setInt(6, entry.range().prefixLength());
+        setExpiry(pstmt, 7, entry);
+        setPlayerId(pstmt, 8, entry);
+    }
+
+    /** Permanent entries store NULL, which reads back as 0. */
+    private static void setExpiry(PreparedStatement pstmt, int index, WhitelistEntry entry) throws SQLException {
+        if (entry.expires()) {
+            pstmt.setLong(index, entry.expiresAt());
+        } else {
+            pstmt.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private static void setPlayerId(PreparedStatement pstmt, int index, WhitelistEntry entry) throws SQLException {
+        pstmt.setString(index, entry.bound() ? entry.playerId().toString() : null);
+    }
+
+    @Override
+    public boolean removeIP(String ip) {
+        CidrRange range = CidrRange.tryParse(ip);
+        if (range == null) {
+            return false;
+        }
+        return write("db.remove_ip", (connection, afterCommit) -> {
+            // Read the row first so listeners learn which player it belonged to
+            List<WhitelistEntry> removed = selectEntries(connection,
+                    "address = ? AND prefix_length = ?", pstmt -> {
+                        pstmt.setBytes(1, range.toBytes());
+                        pstmt.setInt(2, range.prefixLength());
+                    });
+            if (removed.isEmpty()) {
+                return false;
+            }
+            PreparedStatement pstmt = connection.prepare(
+                    "DELETE FROM whitelist WHERE address = ? AND prefix_length = ?");
+            pstmt.setBytes(1, range.toBytes());
+            pstmt.setInt(2, range.prefixLength());
+            pstmt.executeUpdate();
+            WhitelistEntry entry = removed.get(0);
+            long seq = logChange(connection, CHANGE_REMOVED, entry);
+            afterCommit.add(() -> applyChange(seq, false, entry));
+            return true;
+        }, false, "Error removing IP");
+    }
+
+    @Override
+    public int removeIPsByPlayer(String playerName) {
+        return write("db.remove_by_player", (connection, afterCommit) -> {
+            // Fetch the entries first so they can be dropped from the index as well.
+            List<WhitelistEntry> removed = selectEntries(connection, "player_key = lower(trim(?))",
+                    pstmt -> pstmt.setString(1, playerName));
+            PreparedStatement pstmt = connection.prepare(
+                    "DELETE FROM whitelist WHERE player_key = lower(trim(?))");
+            pstmt.setString(1, playerName);
+            int rowsAffected = pstmt.executeUpdate();
+            for (WhitelistEntry entry : removed) {
+                long seq = logChange(connection, CHANGE_REMOVED, entry);
+                afterCommit.add(() -> applyChange(seq, false, entry));
+            }
+            return rowsAffected;
+        }, 0, "Error removing IPs by player");
+    }
+
+    @Override
+    public int removeExpired(List<WhitelistEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        return write("db.remove_expired", (connection, afterCommit) -> {
+            PreparedStatement pstmt = connection.prepare("DELETE FROM whitelist "
+                    + "WHERE address = ? AND prefix_length = ? AND expires_at = ? AND expires_at <= ?");
+            for (WhitelistEntry entry : entries) {
+                pstmt.setBytes(1, entry.range().toBytes());
+                pstmt.setInt(2, entry.range().prefixLength());
+                pstmt.setLong(3, entry.expiresAt());
+                pstmt.setLong(4, now);
+                pstmt.addBatch();
+            }
+            int[] counts = pstmt.executeBatch();
+            int removed = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    WhitelistEntry entry = entries.get(i);
+                    long seq = logChange(connection, CHANGE_REMOVED, entry);
+                    afterCommit.add(() -> applyChange(seq, false, entry));
+                    removed++;
+                }
+            }
+            return removed;
+        }, 0, "Error removing expired IPs");
+    }
+
+    @Override
+    public List<String> getIPsByPlayer(String playerName) {
+        return read("db.ips_by_player", connection -> {
+            List<String> ips = new ArrayList<>();
+            PreparedStatement pstmt = connection.prepare(
+                    "SELECT ip FROM whitelist WHERE player_key = lower(trim(?))");
+            pstmt.setString(1, playerName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ips.add(rs.getString("ip"));
+                }
+            }
+            return ips;
+        }, new ArrayList<>(), "Error getting IPs by player");
+    }
+
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement pstmt) throws SQLException;
+    }
+
+    private List<WhitelistEntry> selectEntries(PooledConnection connection, String where, ParameterBinder binder)
+            throws SQLException {
+        List<WhitelistEntry> entries = new ArrayList<>();
+        PreparedStatement pstmt = connection.prepare("SELECT " + ENTRY_COLUMNS
+                + " FROM whitelist WHERE address IS NOT NULL AND " + where);
+        binder.bind(pstmt);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                entries.add(readEntry(rs));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Streams every entry, in insertion order, to {@code consumer} without
+     * materialising the table. Holds one pooled read connection for the duration.
+     *
+     * @return the number of entries visited
+     */
+    @Override
+    public long forEachEntry(Consumer<WhitelistEntry> consumer) throws StorageException {
+        long start = System.nanoTime();
+        try {
+            return readPool.read(connection -> {
+                long count = 0;
+                PreparedStatement pstmt = connection.prepare("SELECT " + ENTRY_COLUMNS
+                        + " FROM whitelist WHERE address IS NOT NULL ORDER BY id");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(readEntry(rs));
+                        count++;
+                    }
+                }
+                return count;
+            });
+        } catch (SQLException e) {
+            throw new StorageException("Error reading whitelist entries", e);
+        } finally {
+            metrics.histogram("db.for_each_entry").recordSince(start);
+        }
+    }
+
+    private static WhitelistEntry readEntry(ResultSet rs) throws SQLException {
+        return new WhitelistEntry(CidrRange.fromBytes(rs.getBytes("address"), rs.getInt("prefix_length")),
+                rs.getString("player_name"), readPlayerId(rs), rs.getString("added_by"), rs.getLong("timestamp"),
+                rs.getLong("expires_at"));
+    }
+
+    private static UUID readPlayerId(ResultSet rs) throws SQLException {
+        String playerId = rs.getString("player_uuid");
+        if (playerId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(playerId);
+        } catch (IllegalArgumentException e) {
+            return null; // Hand-edited row; treat the entry as unbound
+        }
+    }
+
+    /**
+     * Fetches up to {@code limit} entries matching {@code filter} whose id is
+     * greater than {@code afterId}, in id order (keyset pagination).
+     */
+    @Override
+    public Page getPage(ListFilter filter, long afterId, int limit) {
+        return read("db.page", connection -> {
+            PreparedStatement pstmt = connection.prepare("SELECT id, " + ENTRY_COLUMNS
+                    + " FROM whitelist WHERE id > ? AND address IS NOT NULL"
+                    + filter.sqlCondition() + " ORDER BY id LIMIT ?");
+            int param = 1;
+            pstmt.setLong(param++, afterId);
+            if (filter.type() != ListFilter.Type.NONE) {
+                pstmt.setString(param++, filter.sqlParameter());
+            }
+            pstmt.setInt(param, limit + 1); // one extra row tells us whether another page exists
+            List<WhitelistEntry> entries = new ArrayList<>(limit);
+            long lastId = afterId;
+            boolean hasMore = false;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (entries.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    entries.add(readEntry(rs));
+                    lastId = rs.getLong("id");
+                }
+            }
+            return new Page(entries, lastId, hasMore);
+        }, new Page(List.of(), afterId, false), "Error listing IPs");
+    }
+
+    /**
+     * Finds the keyset cursor {@code rows} matching entries past {@code afterId},
+     * touching only ids, so jumping ahead several pages never loads their rows.
+     *
+     * @return the id to pass as {@code afterId}, or -1 if there are fewer rows than that
+     */
+    @Override
+    public long findCursor(ListFilter filter, long afterId, int rows) {
+        if (rows <= 0) {
+            return afterId;
+        }
+        return read("db.find_cursor", connection -> {
+            PreparedStatement pstmt = connection.prepare("SELECT id FROM whitelist WHERE id > ? "
+                    + "AND address IS NOT NULL" + filter.sqlCondition() + " ORDER BY id LIMIT 1 OFFSET ?");
+            int param = 1;
+            pstmt.setLong(param++, afterId);
+            if (filter.type() != ListFilter.Type.NONE) {
+                pstmt.setString(param++, filter.sqlParameter());
+            }
+            pstmt.setInt(param, rows - 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong("id") : -1L;
+            }
+        }, -1L, "Error listing IPs");
+    }
+
+    @Override
+    public List<String> getAllIPs() {
+        return read("db.all_ips", connection -> {
+            List<String> ips = new ArrayList<>();
+            PreparedStatement pstmt = connection.prepare("SELECT ip, player_name FROM whitelist");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String ip = rs.getString("ip");
+                    String player = rs.getString("player_name");
+                    if (player != null && !player.isEmpty()) {
+                        ips.add(ip + " (" + player + ")");
+                    } else {
+                        ips.add(ip);
+                    }
+                }
+            }
+            return ips;
+        }, new ArrayList<>(), "Error getting all IPs");
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Removes time-limited entries once they expire. Each entry with an expiry
+ * holds one timeout on the shared {@link TimingWheel}; the entries that fall
+ * due in the same tick are removed from storage, and with it from the lookup
+ * index, in a single batch.
+ */
+public class EntryExpiry implements WhitelistListener {
+    // An entry that could not be removed is tried again after this long
+    private static final long RETRY_MILLIS = 60_000;
+
+    private final TimingWheel wheel;
+    private final WhitelistStorage storage;
+    private final Logger logger;
+    private final Map<CidrRange, TimingWheel.Timeout<WhitelistEntry>> timeouts = new ConcurrentHashMap<>();
+    // One handler instance, so the wheel batches all expiring entries into one call
+    private final Consumer<List<WhitelistEntry>> handler = this::expire;
+
+    public EntryExpiry(TimingWheel wheel, WhitelistStorage storage, Logger logger) {
+        this.wheel = wheel;
+        this.storage = storage;
+        this.logger = logger;
+    }
+
+    @Override
+    public void entryAdded(WhitelistEntry entry) {
+        if (entry.expires()) {
+            track(entry);
+        }
+    }
+
+    @Override
+    public void entryRemoved(WhitelistEntry entry) {
+        TimingWheel.Timeout<WhitelistEntry> timeout = timeouts.remove(entry.range());
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    @Override
+    public void entriesLoaded(Collection<WhitelistEntry> entries) {
+        timeouts.values().forEach(wheel::cancel);
+        timeouts.clear();
+        for (WhitelistEntry entry : entries) {
+            if (entry.expires()) {
+                track(entry);
+            }
+        }
+    }
+
+    /** Number of entries waiting to expire. */
+    public int pending() {
+        return timeouts.size();
+    }
+
+    private void track(WhitelistEntry entry) {
+        TimingWheel.Timeout<WhitelistEntry> previous = timeouts.put(entry.range(),
+                wheel.schedule(entry.expiresAt(), entry, handler));
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+    }
+
+    /** Runs on the wheel thread with every entry that fell due in one tick. */
+    private void expire(List<WhitelistEntry> entries) {
+        int removed = storage.removeExpired(entries);
+        if (removed > 0) {
+            logger.info("Removed " + removed + " expired whitelist " + (removed == 1 ? "entry." : "entries."));
+        }
+        // Removed entries untracked themselves through entryRemoved(); retry any whose removal failed
+        long retryAt = System.currentTimeMillis() + RETRY_MILLIS;
+        for (WhitelistEntry entry : entries) {
+            TimingWheel.Timeout<WhitelistEntry> timeout = timeouts.get(entry.range());
+            if (timeout != null && timeout.value() == entry) {
+                TimingWheel.Timeout<WhitelistEntry> retry = wheel.schedule(retryAt, entry, handler);
+                if (!timeouts.replace(entry.range(), timeout, retry)) {
+                    wheel.cancel(retry);
+                }
+            }
+        }
+    }
+}
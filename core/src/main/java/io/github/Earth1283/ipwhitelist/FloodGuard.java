@@ -0,0 +1,174 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Detects connection floods from the rate of denied logins and, while one is
+ * in progress, rate limits denied sources per address and per subnet (/24 for
+ * IPv4, /48 for IPv6).
+ * <p>
+ * Token buckets are striped over fixed {@link AtomicLongArray}s: each slot
+ * packs the remaining tokens and the last refill time into one long that is
+ * updated with a CAS, so checks are lock-free and allocation-free. Unrelated
+ * sources that hash to the same slot share a bucket, which only makes the
+ * limit slightly stricter for them.
+ */
+public class FloodGuard {
+    /**
+     * @param enableThreshold  denied logins per second that switch under-attack mode on
+     * @param disableThreshold denied logins per second below which the mode may switch off
+     * @param cooldownMillis   how long the rate must stay below {@code disableThreshold} first
+     * @param ipRate           tokens per second refilled into each per-address bucket
+     * @param ipBurst          per-address bucket size, clamped to 1..{@value #MAX_BURST}
+     * @param subnetRate       tokens per second refilled into each per-subnet bucket
+     * @param subnetBurst      per-subnet bucket size, clamped to 1..{@value #MAX_BURST}
+     */
+    public record Settings(boolean enabled, double enableThreshold, double disableThreshold, long cooldownMillis,
+            double ipRate, int ipBurst, double subnetRate, int subnetBurst) {
+        public Settings {
+            ipRate = Math.max(0, ipRate);
+            ipBurst = Math.clamp(ipBurst, 1, MAX_BURST);
+            subnetRate = Math.max(0, subnetRate);
+            subnetBurst = Math.clamp(subnetBurst, 1, MAX_BURST);
+        }
+    }
+
+    private static final int STRIPES = 1 << 16;
+    private static final int TIME_BITS = 42;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MILLI = 1000; // tokens are stored in thousandths
+    /** The largest bucket whose thousandths fit in the 22 bits above the refill time. */
+    public static final int MAX_BURST = (int) (((1L << (Long.SIZE - TIME_BITS)) - 1) / MILLI);
+
+    private final AtomicLongArray ipBuckets = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray subnetBuckets = new AtomicLongArray(STRIPES);
+    private final LongAdder windowDenied = new LongAdder();
+    private final AtomicLong windowStart;
+    private final long origin = System.nanoTime();
+    private final Logger logger;
+    private volatile Settings settings;
+    private volatile boolean underAttack;
+    private volatile long calmSince;
+
+    public FloodGuard(Settings settings, Logger logger) {
+        this.settings = settings;
+        this.logger = logger;
+        this.windowStart = new AtomicLong(now());
+    }
+
+    public void configure(Settings settings) {
+        this.settings = settings;
+        if (!settings.enabled() && underAttack) {
+            underAttack = false;
+            logger.info("Connection flood protection disabled; leaving under-attack mode.");
+        }
+    }
+
+    public boolean isUnderAttack() {
+        return underAttack;
+    }
+
+    /** Records one denied login towards the observed deny rate. */
+    public void recordDenied() {
+        windowDenied.increment();
+        tick();
+    }
+
+    /**
+     * Closes the current one-second window if it has elapsed and updates the
+     * under-attack state. Called on every denial and from a periodic task so
+     * the mode also switches off once denials stop altogether.
+     */
+    public void tick() {
+        long now = now();
+        long start = windowStart.get();
+        long elapsed = now - start;
+        if (elapsed < 1000 || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        Settings current = settings;
+        if (!current.enabled()) {
+            windowDenied.reset();
+            return;
+        }
+        double rate = windowDenied.sumThenReset() * 1000.0 / elapsed;
+        if (!underAttack) {
+            if (rate >= current.enableThreshold()) {
+                underAttack = true;
+                calmSince = 0;
+                logger.warning("Connection flood detected (" + (long) rate
+                        + " denied logins/s); shedding non-whitelisted connections.");
+            }
+        } else if (rate >= current.disableThreshold()) {
+            calmSince = 0;
+        } else if (calmSince == 0) {
+            calmSince = now;
+        } else if (now - calmSince >= current.cooldownMillis()) {
+            underAttack = false;
+            logger.info("Connection flood has subsided; leaving under-attack mode.");
+        }
+    }
+
+    /**
+     * Takes a token from both the address and the subnet bucket of {@code address}.
+     *
+     * @return false if either bucket is exhausted
+     */
+    public boolean tryAcquire(InetAddress address) {
+        Settings current = settings;
+        long ipKey;
+        long subnetKey;
+        if (address instanceof Inet4Address inet4) {
+            int packed = IPAddresses.packIPv4(inet4);
+            ipKey = packed;
+            subnetKey = packed & 0xFFFFFF00;
+        } else {
+            byte[] bytes = address.getAddress();
+            long high = IPAddresses.readLong(bytes, 0, 8);
+            long low = IPAddresses.readLong(bytes, 8, 8);
+            ipKey = high * 0x9E3779B97F4A7C15L ^ low;
+            subnetKey = high & 0xFFFFFFFFFFFF0000L;
+        }
+        long now = now();
+        return take(ipBuckets, ipKey, current.ipRate(), current.ipBurst(), now)
+                && take(subnetBuckets, subnetKey, current.subnetRate(), current.subnetBurst(), now);
+    }
+
+    private static boolean take(AtomicLongArray buckets, long key, double rate, int burst, long now) {
+        int slot = mix(key) & (STRIPES - 1);
+        long capacity = burst * MILLI;
+        while (true) {
+            long state = buckets.get(slot);
+            long last = state & TIME_MASK;
+            long tokens;
+            if (last == 0) {
+                tokens = capacity; // untouched slot starts full
+            } else {
+                // rate tokens/s is exactly rate thousandths per millisecond
+                tokens = Math.min(capacity, (state >>> TIME_BITS) + (long) ((now - last) * rate));
+            }
+            boolean granted = tokens >= MILLI;
+            if (granted) {
+                tokens -= MILLI;
+            }
+            if (buckets.compareAndSet(slot, state, (tokens << TIME_BITS) | now)) {
+                return granted;
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29) ^ (h >>> 47));
+    }
+
+    /** Milliseconds since construction, offset by one so a zero timestamp means "unused". */
+    private long now() {
+        return (System.nanoTime() - origin) / 1_000_000 + 1;
+    }
+}
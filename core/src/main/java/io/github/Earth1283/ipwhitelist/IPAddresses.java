@@ -0,0 +1,115 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.net.Inet4Address;
+
+/**
+ * Conversions between textual IP addresses and the packed primitive form used
+ * by the in-memory lookup index.
+ */
+public final class IPAddresses {
+    private IPAddresses() {
+    }
+
+    /**
+     * Packs a dotted-quad IPv4 address into an int (first octet in the high byte).
+     *
+     * @throws IllegalArgumentException if the text is not a valid dotted quad
+     */
+    public static int packIPv4(String ip) {
+        int result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || ++octets > 4) {
+                    throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+                }
+                result = (result << 8) | value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+            }
+        }
+        if (octets != 4) {
+            throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the packed form of an {@link Inet4Address} without allocating.
+     * <p>
+     * {@code Inet4Address.hashCode()} is defined by the JDK as the raw address,
+     * whereas {@code getAddress()} would clone a fresh byte array per call.
+     */
+    public static int packIPv4(Inet4Address address) {
+        return address.hashCode();
+    }
+
+    public static String formatIPv4(int address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "."
+                + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    /**
+     * Formats a 128-bit IPv6 address in RFC 5952 canonical form: lowercase hex,
+     * no leading zeros, and the longest run of two or more zero groups
+     * compressed to {@code ::}.
+     */
+    public static String formatIPv6(long high, long low) {
+        int[] groups = new int[8];
+        for (int i = 0; i < 4; i++) {
+            groups[i] = (int) (high >>> (48 - 16 * i)) & 0xFFFF;
+            groups[i + 4] = (int) (low >>> (48 - 16 * i)) & 0xFFFF;
+        }
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0; i < 8; i++) {
+            int length = 0;
+            while (i + length < 8 && groups[i + length] == 0) {
+                length++;
+            }
+            if (length > bestLength) {
+                bestStart = i;
+                bestLength = length;
+            }
+            i += length;
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                sb.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ':') {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString(groups[i]));
+        }
+        return sb.toString();
+    }
+
+    /** Reads {@code length} bytes (at most 8) starting at {@code offset} as a big-endian value. */
+    public static long readLong(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /** Writes the low {@code length} bytes of {@code value} big-endian starting at {@code offset}. */
+    public static void writeLong(byte[] bytes, int offset, int length, long value) {
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
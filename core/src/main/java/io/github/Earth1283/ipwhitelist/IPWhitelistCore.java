@@ -0,0 +1,389 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Everything the plugin does apart from hooking into a platform: storage, the
+ * in-memory index, expiry, flood protection, the attempt log, metrics and
+ * command handling. The Paper and Velocity adapters each own one instance and
+ * forward logins to {@link #loginGate()} and commands to {@link #command()}.
+ * <p>
+ * Periodic work runs on a scheduler thread of its own, so it behaves the same
+ * on a server as on a proxy.
+ */
+public final class IPWhitelistCore {
+    private static final int MIGRATION_BATCH_SIZE = 5000;
+    private static final long MILLIS_PER_TICK = 50;
+
+    private final Platform platform;
+    private final Logger logger;
+    private final Metrics metrics = new Metrics();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("IPWhitelist-scheduler").daemon().factory());
+    private volatile PluginConfig config;
+    // Swapped as a whole on reload; see ConfigSnapshot
+    private volatile ConfigSnapshot settings;
+    private WhitelistStorage storage;
+    private TimingWheel timingWheel;
+    private PlayerBindings bindings;
+    private AttemptLog attemptLog;
+    private StorageExecutor storageExecutor;
+    private FloodGuard floodGuard;
+    private LoginGate loginGate;
+    private WhitelistCommand command;
+    private Path snapshotFile;
+    // Storage, config and snapshot files that commands must never write to
+    private final List<Path> ownFiles = new ArrayList<>();
+
+    public IPWhitelistCore(Platform platform, Logger logger) {
+        this.platform = platform;
+        this.logger = logger;
+    }
+
+    /**
+     * Opens storage and starts everything up.
+     *
+     * @throws StorageException if the whitelist cannot be opened; {@link #disable} still needs to be called
+     */
+    public void enable() throws StorageException {
+        config = platform.loadConfig();
+        settings = ConfigSnapshot.load(config);
+        try {
+            Files.createDirectories(platform.dataFolder());
+        } catch (IOException e) {
+            throw new StorageException("Could not create " + platform.dataFolder(), e);
+        }
+        storage = createStorage();
+        // Shared by everything that expires: temporary entries and pending confirmations
+        timingWheel = new TimingWheel(1000, logger);
+        timingWheel.start();
+        CompletionIndex completionIndex = new CompletionIndex();
+        storage.addListener(completionIndex);
+        storage.addListener(new EntryExpiry(timingWheel, storage, logger));
+        bindings = new PlayerBindings();
+        storage.addListener(bindings);
+        loadWhitelist();
+        scheduleSync();
+
+        ConfirmationManager confirmationManager = new ConfirmationManager(timingWheel);
+        // Command-side storage work runs in the background; results go to the platform's callback executor
+        storageExecutor = new StorageExecutor(config.getInt("max-pending-commands", 16),
+                platform.callbackExecutor(), logger);
+
+        attemptLog = createAttemptLog();
+
+        floodGuard = new FloodGuard(floodSettings(), logger);
+        // Lets under-attack mode switch off even when denials stop completely
+        repeat(floodGuard::tick, 1000, 1000);
+        loginGate = new LoginGate(logger, storage, bindings, floodGuard, metrics, attemptLog, this::settings);
+
+        command = new WhitelistCommand(this, storage, confirmationManager, storageExecutor, completionIndex,
+                metrics, attemptLog);
+
+        schedulePrometheusDump();
+    }
+
+    public void disable() {
+        scheduler.shutdownNow();
+        if (storageExecutor != null) {
+            storageExecutor.shutdown();
+        }
+        if (timingWheel != null) {
+            timingWheel.close();
+        }
+        if (attemptLog != null) {
+            attemptLog.close();
+        }
+        if (storage != null) {
+            storage.close();
+            // Taken after the writer has drained, so it matches what was stored
+            writeSnapshot();
+        }
+    }
+
+    /** Reloads config.yml and publishes freshly parsed {@link ConfigSnapshot}. */
+    public void reload() {
+        PluginConfig newConfig = platform.loadConfig();
+        ConfigSnapshot newSettings = ConfigSnapshot.load(newConfig);
+        config = newConfig;
+        settings = newSettings;
+        floodGuard.configure(floodSettings());
+    }
+
+    /**
+     * Opens the storage backend chosen by {@code storage.backend}. The first
+     * time the journal backend starts next to an existing SQLite database, the
+     * database is copied into a new journal; the database itself is left as is.
+     */
+    private WhitelistStorage createStorage() throws StorageException {
+        Path dataFolder = platform.dataFolder();
+        // Relative paths are resolved against the plugin folder
+        Path databaseFile = dataFolder.resolve(config.getString("database.file", "whitelist.db")).toAbsolutePath();
+        ownFiles.add(dataFolder.resolve("config.yml"));
+        ownFiles.add(databaseFile);
+        int writeBatchSize = config.getInt("database.write-batch-size", 256);
+        String backend = config.getString("storage.backend", "sqlite").toLowerCase(Locale.ROOT);
+        if (backend.equals("journal")) {
+            Path journalFile = dataFolder.resolve(config.getString("storage.journal-file", "whitelist.journal"));
+            ownFiles.add(journalFile);
+            if (!Files.exists(journalFile) && Files.exists(databaseFile)) {
+                migrateFromSQLite(databaseFile, journalFile, writeBatchSize);
+            }
+            JournalStorage journal = new JournalStorage(journalFile, logger, metrics, writeBatchSize);
+            journal.init();
+            return journal;
+        }
+        if (!backend.equals("sqlite")) {
+            logger.warning("Unknown storage backend '" + backend + "', using sqlite.");
+        }
+        DatabaseManager database = new DatabaseManager(databaseFile.toString(), logger, metrics,
+                config.getInt("database.read-connections", 4), writeBatchSize);
+        database.init();
+        return database;
+    }
+
+    /**
+     * Copies the database into a journal next to {@code journalFile} and moves
+     * it into place once every batch is on disk, so a failed or interrupted
+     * copy leaves no journal behind and is started over at the next startup.
+     */
+    private void migrateFromSQLite(Path databaseFile, Path journalFile, int writeBatchSize)
+            throws StorageException {
+        logger.info("Migrating whitelist from " + databaseFile.getFileName() + " to the journal...");
+        Path partialFile = journalFile.resolveSibling(journalFile.getFileName() + ".migrating");
+        try {
+            Files.deleteIfExists(partialFile); // Left over from an interrupted migration
+        } catch (IOException e) {
+            throw new StorageException("Could not remove " + partialFile, e);
+        }
+        DatabaseManager database = new DatabaseManager(databaseFile.toString(), logger, metrics, 1, 256);
+        JournalStorage journal = new JournalStorage(partialFile, logger, metrics, writeBatchSize);
+        long[] migrated = {0};
+        boolean copied = false;
+        try {
+            database.init();
+            journal.init();
+            List<WhitelistEntry> batch = new ArrayList<>(MIGRATION_BATCH_SIZE);
+            database.forEachEntry(entry -> {
+                batch.add(entry);
+                if (batch.size() == MIGRATION_BATCH_SIZE) {
+                    migrated[0] += journal.addIPsOrFail(batch);
+                    batch.clear();
+                }
+            });
+            migrated[0] += journal.addIPsOrFail(batch);
+            copied = true;
+        } catch (CompletionException e) {
+            throw new StorageException("Could not copy the whitelist into the journal", e.getCause());
+        } finally {
+            journal.close();
+            database.close();
+            if (!copied) {
+                try {
+                    Files.deleteIfExists(partialFile);
+                } catch (IOException ignored) {
+                    // Removed at the next attempt instead
+                }
+            }
+        }
+        try {
+            Files.move(partialFile, journalFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new StorageException("Could not move the migrated journal into place", e);
+        }
+        logger.info("Migrated " + migrated[0] + " whitelist entries. " + databaseFile.getFileName()
+                + " was left in place and is no longer used.");
+    }
+
+    /**
+     * Opens the login attempt log if it is enabled. A log that fails to open is
+     * left disabled rather than taking the plugin down with it.
+     */
+    private AttemptLog createAttemptLog() {
+        Path file = platform.dataFolder().resolve(config.getString("attempts.file", "attempts.db"));
+        ownFiles.add(file);
+        AttemptLog log = new AttemptLog(file.toAbsolutePath().toString(), logger, metrics,
+                config.getInt("attempts.buffer-size", 65536), config.getInt("attempts.batch-size", 1000),
+                TimeUnit.DAYS.toMillis(Math.max(1, config.getLong("attempts.retention-days", 7))));
+        if (config.getBoolean("attempts.enabled", true)) {
+            try {
+                log.start();
+            } catch (StorageException e) {
+                logger.warning("Login attempt log disabled: " + e.getCause().getMessage());
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Loads the whitelist into memory. If a snapshot from the last run is
+     * available, logins are answered from it straight away and storage is
+     * loaded in the background; commands queue behind that load. The snapshot
+     * holds addresses only, so it is not served in strict mode.
+     */
+    private void loadWhitelist() {
+        ownFiles.add(platform.dataFolder().resolve("whitelist.snapshot"));
+        snapshotFile = config.getBoolean("snapshot.enabled", true)
+                ? platform.dataFolder().resolve("whitelist.snapshot")
+                : null;
+        WhitelistSnapshot snapshot = snapshotFile != null && !settings.strict()
+                ? WhitelistSnapshot.open(snapshotFile, logger)
+                : null;
+        if (snapshot == null) {
+            int loaded = storage.loadIndex();
+            logger.info("Loaded " + loaded + " whitelisted IPs into memory.");
+        } else {
+            storage.getIndex().attachSnapshot(snapshot);
+            logger.info("Serving " + snapshot.size() + " whitelist entries from the snapshot while the "
+                    + "whitelist loads.");
+            // Completions run on the scheduler, never the storage writer the fallback waits on
+            storage.loadIndexInBackground().whenCompleteAsync((loaded, error) -> {
+                if (error == null) {
+                    logger.info("Loaded " + loaded + " whitelisted IPs into memory.");
+                    return;
+                }
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                logger.severe("Background whitelist load failed: " + cause.getMessage()
+                        + ". No longer serving from the snapshot; loading again.");
+                // The snapshot may be arbitrarily stale and nothing else would ever replace it
+                storage.getIndex().detachSnapshot();
+                int reloaded = storage.loadIndex();
+                if (storage.isLoaded()) {
+                    logger.info("Loaded " + reloaded + " whitelisted IPs into memory.");
+                } else {
+                    logger.severe("The whitelist could not be loaded; only addresses added since will be admitted.");
+                }
+            }, scheduler);
+        }
+        if (snapshotFile != null) {
+            long interval = TimeUnit.MINUTES.toMillis(Math.max(1, config.getLong("snapshot.interval-minutes", 10)));
+            repeat(this::writeSnapshot, interval, interval);
+        }
+    }
+
+    private void writeSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            storage.writeSnapshot(snapshotFile);
+        } catch (IOException e) {
+            logger.warning("Failed to write whitelist snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Polls the change log for entries written by other servers sharing the
+     * database, and compacts it hourly.
+     */
+    private void scheduleSync() {
+        long pollInterval = config.getLong("database.sync-interval-ticks", 40) * MILLIS_PER_TICK;
+        if (pollInterval > 0) {
+            repeat(storage::pollChanges, pollInterval, pollInterval);
+        }
+        long retention = TimeUnit.HOURS.toMillis(
+                Math.max(1, config.getLong("database.change-log-retention-hours", 24)));
+        long hour = TimeUnit.HOURS.toMillis(1);
+        repeat(() -> storage.compactChanges(retention), hour, hour);
+    }
+
+    /** Periodically writes {@link Metrics} to a Prometheus text file if one is configured. */
+    private void schedulePrometheusDump() {
+        String fileName = config.getString("metrics.prometheus-file", "");
+        if (fileName == null || fileName.isEmpty()) {
+            return;
+        }
+        Path file = platform.dataFolder().resolve(fileName);
+        long interval = TimeUnit.SECONDS.toMillis(Math.max(1, config.getLong("metrics.dump-interval-seconds", 15)));
+        repeat(() -> {
+            try {
+                metrics.writePrometheus(file);
+            } catch (IOException e) {
+                logger.warning("Failed to write metrics to " + file + ": " + e.getMessage());
+            }
+        }, interval, interval);
+    }
+
+    /** Runs {@code task} every {@code periodMillis}; a task that throws is logged and runs again next time. */
+    private void repeat(Runnable task, long delayMillis, long periodMillis) {
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.severe("Error in scheduled task: " + e.getMessage());
+            }
+        }, delayMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private FloodGuard.Settings floodSettings() {
+        return new FloodGuard.Settings(
+                config.getBoolean("flood-protection.enabled", true),
+                config.getDouble("flood-protection.enable-threshold", 50),
+                config.getDouble("flood-protection.disable-threshold", 10),
+                config.getLong("flood-protection.cooldown-seconds", 30) * 1000,
+                config.getDouble("flood-protection.per-ip.rate", 1),
+                config.getInt("flood-protection.per-ip.burst", 3),
+                config.getDouble("flood-protection.per-subnet.rate", 5),
+                config.getInt("flood-protection.per-subnet.burst", 20));
+    }
+
+    /**
+     * Whether {@code file} is one of the plugin's storage, config or snapshot
+     * files, or a file named after one of them next to it, such as SQLite's
+     * {@code -wal} file or a temporary copy.
+     */
+    public boolean isOwnFile(Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+        for (Path own : ownFiles) {
+            Path ownNormalized = own.toAbsolutePath().normalize();
+            if (normalized.getParent().equals(ownNormalized.getParent())
+                    && normalized.getFileName().toString().startsWith(ownNormalized.getFileName().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Platform platform() {
+        return platform;
+    }
+
+    public PluginConfig config() {
+        return config;
+    }
+
+    public ConfigSnapshot settings() {
+        return settings;
+    }
+
+    public Messages messages() {
+        return settings.messages();
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    public WhitelistStorage storage() {
+        return storage;
+    }
+
+    public LoginGate loginGate() {
+        return loginGate;
+    }
+
+    public WhitelistCommand command() {
+        return command;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of IPv4 CIDR ranges matched through a sorted array of disjoint intervals.
+ * <p>
+ * Mutations are serialised and rebuild the interval arrays, which are then
+ * published as one immutable snapshot. Lookups read that snapshot without
+ * locking or allocating and binary search it, so a check costs at most 32
+ * comparisons however many ranges are whitelisted.
+ */
+public final class IPv4RangeSet {
+    private record Intervals(long[] starts, long[] ends) {
+    }
+
+    private static final Intervals EMPTY = new Intervals(new long[0], new long[0]);
+
+    // Ranges may nest (e.g. a /16 and a /24 inside it); they are merged on rebuild.
+    private final Set<CidrRange> ranges = new HashSet<>();
+    private volatile Intervals intervals = EMPTY;
+
+    public boolean contains(int address) {
+        Intervals snapshot = intervals;
+        long[] starts = snapshot.starts;
+        long value = Integer.toUnsignedLong(address);
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // high is now the last interval starting at or before the address
+        return high >= 0 && value <= snapshot.ends[high];
+    }
+
+    public synchronized boolean add(CidrRange range) {
+        if (!ranges.add(range)) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    /** Adds several ranges with a single rebuild; used for bulk loads. */
+    public synchronized void addAll(Collection<CidrRange> newRanges) {
+        if (ranges.addAll(newRanges)) {
+            rebuild();
+        }
+    }
+
+    public synchronized boolean remove(CidrRange range) {
+        if (!ranges.remove(range)) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    public synchronized void clear() {
+        ranges.clear();
+        intervals = EMPTY;
+    }
+
+    public synchronized int size() {
+        return ranges.size();
+    }
+
+    /** Returns the merged intervals as {@code {starts, ends}}, sorted by start. */
+    public long[][] intervals() {
+        Intervals snapshot = intervals;
+        return new long[][] { snapshot.starts.clone(), snapshot.ends.clone() };
+    }
+
+    private void rebuild() {
+        List<CidrRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(CidrRange::low));
+        long[] starts = new long[sorted.size()];
+        long[] ends = new long[sorted.size()];
+        int count = 0;
+        for (CidrRange range : sorted) {
+            if (count > 0 && range.low() <= ends[count - 1] + 1) {
+                ends[count - 1] = Math.max(ends[count - 1], range.lastLow());
+            } else {
+                starts[count] = range.low();
+                ends[count] = range.lastLow();
+                count++;
+            }
+        }
+        intervals = new Intervals(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Open-addressing hash set of packed IPv4 addresses.
+ * <p>
+ * Writers are serialised on the set's monitor; readers never lock and never
+ * allocate, so {@link #contains(int)} is safe to call from any number of async
+ * login threads. Slots are mutated in place (a reader may or may not observe a
+ * concurrent add/remove, but never a corrupt chain) and growing publishes a
+ * freshly built table through a volatile field.
+ */
+public final class IPv4Set {
+    private static final int EMPTY = 0;
+    private static final int TOMBSTONE = -1;
+    private static final int MIN_CAPACITY = 64;
+
+    private volatile AtomicIntegerArray slots = new AtomicIntegerArray(MIN_CAPACITY);
+    // 0.0.0.0 and 255.255.255.255 collide with the sentinels, so they live outside the table.
+    private volatile boolean containsEmptyKey;
+    private volatile boolean containsTombstoneKey;
+    private int size;
+    private int used; // live entries + tombstones
+
+    public boolean contains(int address) {
+        if (address == EMPTY) {
+            return containsEmptyKey;
+        }
+        if (address == TOMBSTONE) {
+            return containsTombstoneKey;
+        }
+        AtomicIntegerArray table = slots;
+        int mask = table.length() - 1;
+        int i = mix(address) & mask;
+        while (true) {
+            int value = table.get(i);
+            if (value == address) {
+                return true;
+            }
+            if (value == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public synchronized boolean add(int address) {
+        if (address == EMPTY) {
+            boolean added = !containsEmptyKey;
+            containsEmptyKey = true;
+            return added;
+        }
+        if (address == TOMBSTONE) {
+            boolean added = !containsTombstoneKey;
+            containsTombstoneKey = true;
+            return added;
+        }
+        if ((used + 1) * 2 > slots.length()) {
+            // Grow when live entries dominate, otherwise just sweep out tombstones.
+            rehash(size * 4 > slots.length() ? slots.length() * 2 : slots.length());
+        }
+        AtomicIntegerArray table = slots;
+        int mask = table.length() - 1;
+        int i = mix(address) & mask;
+        int reusable = -1;
+        while (true) {
+            int value = table.get(i);
+            if (value == address) {
+                return false;
+            }
+            if (value == EMPTY) {
+                break;
+            }
+            if (value == TOMBSTONE && reusable < 0) {
+                reusable = i;
+            }
+            i = (i + 1) & mask;
+        }
+        if (reusable >= 0) {
+            table.set(reusable, address);
+        } else {
+            table.set(i, address);
+            used++;
+        }
+        size++;
+        return true;
+    }
+
+    public synchronized boolean remove(int address) {
+        if (address == EMPTY) {
+            boolean removed = containsEmptyKey;
+            containsEmptyKey = false;
+            return removed;
+        }
+        if (address == TOMBSTONE) {
+            boolean removed = containsTombstoneKey;
+            containsTombstoneKey = false;
+            return removed;
+        }
+        AtomicIntegerArray table = slots;
+        int mask = table.length() - 1;
+        int i = mix(address) & mask;
+        while (true) {
+            int value = table.get(i);
+            if (value == address) {
+                table.set(i, TOMBSTONE);
+                size--;
+                return true;
+            }
+            if (value == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public synchronized void clear() {
+        slots = new AtomicIntegerArray(MIN_CAPACITY);
+        containsEmptyKey = false;
+        containsTombstoneKey = false;
+        size = 0;
+        used = 0;
+    }
+
+    public synchronized int size() {
+        return size + (containsEmptyKey ? 1 : 0) + (containsTombstoneKey ? 1 : 0);
+    }
+
+    /** Copies the live addresses, in no particular order. */
+    public synchronized int[] toArray() {
+        int[] result = new int[size()];
+        int count = 0;
+        if (containsEmptyKey) {
+            result[count++] = EMPTY;
+        }
+        if (containsTombstoneKey) {
+            result[count++] = TOMBSTONE;
+        }
+        AtomicIntegerArray table = slots;
+        for (int i = 0; i < table.length(); i++) {
+            int value = table.get(i);
+            if (value != EMPTY && value != TOMBSTONE) {
+                result[count++] = value;
+            }
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        AtomicIntegerArray old = slots;
+        AtomicIntegerArray table = new AtomicIntegerArray(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < old.length(); j++) {
+            int value = old.get(j);
+            if (value == EMPTY || value == TOMBSTONE) {
+                continue;
+            }
+            int i = mix(value) & mask;
+            while (table.get(i) != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            table.set(i, value);
+        }
+        used = size;
+        slots = table;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of IPv6 CIDR ranges matched through a sorted array of disjoint intervals.
+ * <p>
+ * The 128-bit counterpart of {@link IPv4RangeSet}: interval bounds are stored
+ * as interleaved (high, low) pairs and compared unsigned, so a lookup is a
+ * binary search of at most log2(n) steps over an immutable snapshot.
+ */
+public final class IPv6RangeSet {
+    private record Intervals(long[] starts, long[] ends) {
+    }
+
+    private static final Intervals EMPTY = new Intervals(new long[0], new long[0]);
+    private static final Comparator<CidrRange> BY_FIRST = (a, b) -> compare(a.high(), a.low(), b.high(), b.low());
+
+    private final Set<CidrRange> ranges = new HashSet<>();
+    private volatile Intervals intervals = EMPTY;
+
+    public boolean contains(long high, long low) {
+        Intervals snapshot = intervals;
+        long[] starts = snapshot.starts;
+        int lowIndex = 0;
+        int highIndex = starts.length / 2 - 1;
+        while (lowIndex <= highIndex) {
+            int mid = (lowIndex + highIndex) >>> 1;
+            if (compare(starts[2 * mid], starts[2 * mid + 1], high, low) <= 0) {
+                lowIndex = mid + 1;
+            } else {
+                highIndex = mid - 1;
+            }
+        }
+        // highIndex is now the last interval starting at or before the address
+        return highIndex >= 0
+                && compare(high, low, snapshot.ends[2 * highIndex], snapshot.ends[2 * highIndex + 1]) <= 0;
+    }
+
+    public synchronized boolean add(CidrRange range) {
+        if (!ranges.add(range)) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    /** Adds several ranges with a single rebuild; used for bulk loads. */
+    public synchronized void addAll(Collection<CidrRange> newRanges) {
+        if (ranges.addAll(newRanges)) {
+            rebuild();
+        }
+    }
+
+    public synchronized boolean remove(CidrRange range) {
+        if (!ranges.remove(range)) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    public synchronized void clear() {
+        ranges.clear();
+        intervals = EMPTY;
+    }
+
+    public synchronized int size() {
+        return ranges.size();
+    }
+
+    /** Returns the merged intervals as {@code {starts, ends}} of interleaved (high, low) pairs, sorted by start. */
+    public long[][] intervals() {
+        Intervals snapshot = intervals;
+        return new long[][] { snapshot.starts.clone(), snapshot.ends.clone() };
+    }
+
+    private void rebuild() {
+        List<CidrRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(BY_FIRST);
+        long[] starts = new long[sorted.size() * 2];
+        long[] ends = new long[sorted.size() * 2];
+        int count = 0;
+        for (CidrRange range : sorted) {
+            long endHigh = range.lastHigh();
+            long endLow = range.lastLow();
+            if (count > 0 && compare(range.high(), range.low(), ends[2 * count - 2], ends[2 * count - 1]) <= 0) {
+                // Overlaps the previous interval (CIDR ranges either nest or are disjoint)
+                if (compare(endHigh, endLow, ends[2 * count - 2], ends[2 * count - 1]) > 0) {
+                    ends[2 * count - 2] = endHigh;
+                    ends[2 * count - 1] = endLow;
+                }
+            } else {
+                starts[2 * count] = range.high();
+                starts[2 * count + 1] = range.low();
+                ends[2 * count] = endHigh;
+                ends[2 * count + 1] = endLow;
+                count++;
+            }
+        }
+        intervals = new Intervals(Arrays.copyOf(starts, count * 2), Arrays.copyOf(ends, count * 2));
+    }
+
+    private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int result = Long.compareUnsigned(aHigh, bHigh);
+        return result != 0 ? result : Long.compareUnsigned(aLow, bLow);
+    }
+}
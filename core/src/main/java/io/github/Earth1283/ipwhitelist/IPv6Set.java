@@ -0,0 +1,142 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Open-addressing hash set of 128-bit IPv6 addresses, each held as two longs.
+ * <p>
+ * Same concurrency contract as {@link IPv4Set}: writers are serialised, readers
+ * never lock or allocate. A 128-bit key cannot be written atomically, so every
+ * slot has a state word: a writer stores the key first and then publishes it
+ * by setting the state, and readers only compare keys of published slots.
+ * Removed slots are never reused in place (a reader could otherwise pair the
+ * halves of two different keys); they are swept out when the table is rebuilt.
+ */
+public final class IPv6Set {
+    private static final int EMPTY = 0;
+    private static final int FULL = 1;
+    private static final int TOMBSTONE = 2;
+    private static final int MIN_CAPACITY = 16;
+
+    private record Table(AtomicIntegerArray states, long[] keys) {
+        Table(int capacity) {
+            this(new AtomicIntegerArray(capacity), new long[capacity * 2]);
+        }
+    }
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private int size;
+    private int used; // live entries + tombstones
+
+    public boolean contains(long high, long low) {
+        Table current = table;
+        AtomicIntegerArray states = current.states;
+        long[] keys = current.keys;
+        int mask = states.length() - 1;
+        int i = mix(high, low) & mask;
+        while (true) {
+            int state = states.get(i);
+            if (state == EMPTY) {
+                return false;
+            }
+            if (state == FULL && keys[2 * i] == high && keys[2 * i + 1] == low) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public synchronized boolean add(long high, long low) {
+        if (contains(high, low)) {
+            return false;
+        }
+        if ((used + 1) * 2 > table.states.length()) {
+            int capacity = table.states.length();
+            rehash(size * 4 > capacity ? capacity * 2 : capacity);
+        }
+        Table current = table;
+        int mask = current.states.length() - 1;
+        int i = mix(high, low) & mask;
+        while (current.states.get(i) != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        current.keys[2 * i] = high;
+        current.keys[2 * i + 1] = low;
+        current.states.set(i, FULL);
+        size++;
+        used++;
+        return true;
+    }
+
+    public synchronized boolean remove(long high, long low) {
+        Table current = table;
+        AtomicIntegerArray states = current.states;
+        long[] keys = current.keys;
+        int mask = states.length() - 1;
+        int i = mix(high, low) & mask;
+        while (true) {
+            int state = states.get(i);
+            if (state == EMPTY) {
+                return false;
+            }
+            if (state == FULL && keys[2 * i] == high && keys[2 * i + 1] == low) {
+                states.set(i, TOMBSTONE);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public synchronized void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+        used = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Copies the live addresses as interleaved (high, low) pairs, in no particular order. */
+    public synchronized long[] toArray() {
+        long[] result = new long[size * 2];
+        Table current = table;
+        int count = 0;
+        for (int i = 0; i < current.states.length(); i++) {
+            if (current.states.get(i) == FULL) {
+                result[count++] = current.keys[2 * i];
+                result[count++] = current.keys[2 * i + 1];
+            }
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        Table old = table;
+        Table fresh = new Table(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < old.states.length(); j++) {
+            if (old.states.get(j) != FULL) {
+                continue;
+            }
+            long high = old.keys[2 * j];
+            long low = old.keys[2 * j + 1];
+            int i = mix(high, low) & mask;
+            while (fresh.states.get(i) != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            fresh.keys[2 * i] = high;
+            fresh.keys[2 * i + 1] = low;
+            fresh.states.set(i, FULL);
+        }
+        used = size;
+        table = fresh;
+    }
+
+    private static int mix(long high, long low) {
+        long h = (high * 0x9E3779B97F4A7C15L) ^ low;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,748 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Whitelist storage in an append-only binary journal of add and remove
+ * records, for servers that do not need SQL or a shared database.
+ * <p>
+ * Every record is framed by its length and a CRC32C, so a write torn by a
+ * crash is detected and cut off when the journal is replayed at open. The
+ * entries themselves live in memory. A single writer thread applies queued
+ * mutations, appends their records and fsyncs once per batch (group commit)
+ * before updating readers, notifying listeners and completing the callers.
+ * Once removed records outweigh live ones, the live entries are rewritten to
+ * a fresh file in the background and the writer swaps it in, copying over
+ * whatever was appended in the meantime.
+ */
+public class JournalStorage implements WhitelistStorage {
+    private static final int MAGIC = 0x4950574A; // "IPWJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final byte RECORD_ADD = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_ADD_EXPIRING = 3; // RECORD_ADD followed by the expiry
+    private static final byte RECORD_ADD_BOUND = 4; // RECORD_ADD_EXPIRING followed by the player's UUID
+    private static final long MIN_COMPACT_GARBAGE = 10_000;
+
+    /** An entry as known to the writer: its id is the keyset cursor for listing. */
+    private record Stored(long id, WhitelistEntry entry) {
+    }
+
+    @FunctionalInterface
+    private interface JournalOperation<T> {
+        /**
+         * Applies a mutation to the writer's view, appending its records to
+         * {@code records}. Changes to what readers see belong in {@code afterCommit};
+         * {@code undo} must revert the writer's view if the batch cannot be written.
+         */
+        T apply(ByteArrayOutputStream records, List<Runnable> afterCommit, List<Runnable> undo);
+    }
+
+    private record PendingWrite<T>(JournalOperation<T> operation, CompletableFuture<T> future) {
+    }
+
+    private final Path file;
+    private final Path compactFile;
+    private final Logger logger;
+    private final Metrics metrics;
+    private final int maxBatchSize;
+    private final WhitelistIndex index = new WhitelistIndex();
+    private final List<WhitelistListener> listeners = new CopyOnWriteArrayList<>();
+    // What readers see: committed entries by id
+    private final ConcurrentSkipListMap<Long, WhitelistEntry> entries = new ConcurrentSkipListMap<>();
+    private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    private volatile boolean running;
+    private volatile boolean loaded;
+    private Thread writer;
+
+    // Owned by the writer thread once init() returns
+    private final Map<CidrRange, Stored> live = new HashMap<>();
+    private FileChannel channel;
+    private long nextId = 1;
+    private long garbage; // dead records in the journal: removed adds plus the removes themselves
+    private boolean compacting;
+    private long compactMark; // journal size when the running compaction took its copy
+    private long garbageAtMark;
+    private volatile boolean compactReady;
+
+    public JournalStorage(Path file, Logger logger, Metrics metrics, int maxBatchSize) {
+        this.file = file;
+        this.compactFile = file.resolveSibling(file.getFileName() + ".compact");
+        this.logger = logger;
+        this.metrics = metrics;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    @Override
+    public void init() throws StorageException {
+        if (writer != null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(compactFile); // Left over from an interrupted compaction
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            } else {
+                replay();
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            closeChannel();
+            throw new StorageException("Could not open journal " + file, e);
+        }
+        for (Stored stored : live.values()) {
+            entries.put(stored.id(), stored.entry());
+        }
+        running = true;
+        writer = new Thread(this::run, "IPWhitelist-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Rebuilds the writer's view from the journal, cutting off a torn final record. */
+    private void replay() throws IOException {
+        long size = channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a whitelist journal: " + file);
+        }
+        buffer.position(HEADER_BYTES);
+        CRC32C crc = new CRC32C();
+        long records = 0;
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - 4) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer payload = buffer.slice(start + 4, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(start + 4 + length)) {
+                buffer.position(start);
+                break;
+            }
+            applyRecord(payload);
+            buffer.position(start + 4 + length + 4);
+            records++;
+        }
+        long end = buffer.position();
+        if (end < size) {
+            logger.warning("Discarding " + (size - end) + " bytes of incomplete journal records at the end of "
+                    + file.getFileName());
+            channel.truncate(end);
+        }
+        logger.info("Replayed " + records + " journal records (" + live.size() + " live entries).");
+    }
+
+    private void applyRecord(ByteBuffer payload) {
+        byte type = payload.get();
+        if (type == RECORD_ADD || type == RECORD_ADD_EXPIRING || type == RECORD_ADD_BOUND) {
+            long id = payload.getLong();
+            long timestamp = payload.getLong();
+            CidrRange range = readRange(payload);
+            String playerName = readString(payload);
+            String addedBy = readString(payload);
+            long expiresAt = type != RECORD_ADD ? payload.getLong() : 0;
+            UUID playerId = type == RECORD_ADD_BOUND ? new UUID(payload.getLong(), payload.getLong()) : null;
+            WhitelistEntry entry = new WhitelistEntry(range, playerName, playerId, addedBy, timestamp, expiresAt);
+            if (live.put(range, new Stored(id, entry)) != null) {
+                garbage++;
+            }
+            nextId = Math.max(nextId, id + 1);
+        } else if (type == RECORD_REMOVE) {
+            live.remove(readRange(payload));
+            garbage += 2;
+        } else {
+            throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private void run() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (compactReady) {
+                    swapCompacted();
+                }
+                PendingWrite<?> first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                // Nothing should interrupt this thread; the loop condition decides whether to keep draining
+            } finally {
+                batch.clear();
+            }
+        }
+        PendingWrite<?> leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.future.completeExceptionally(new IOException("Journal is closed"));
+        }
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        Object[] results = new Object[batch.size()];
+        Throwable[] failures = new Throwable[batch.size()];
+        List<List<Runnable>> hooks = new ArrayList<>(batch.size());
+        List<Runnable> undo = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ByteArrayOutputStream opRecords = new ByteArrayOutputStream();
+            List<Runnable> afterCommit = new ArrayList<>();
+            List<Runnable> opUndo = new ArrayList<>();
+            hooks.add(afterCommit);
+            try {
+                results[i] = batch.get(i).operation.apply(opRecords, afterCommit, opUndo);
+                opRecords.writeTo(records);
+                undo.addAll(opUndo);
+            } catch (IOException | RuntimeException e) {
+                revert(opUndo);
+                afterCommit.clear();
+                failures[i] = e;
+            }
+        }
+
+        if (records.size() > 0) {
+            long start = 0;
+            try {
+                start = channel.position();
+                ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                logger.severe("Error writing to whitelist journal: " + e.getMessage());
+                revert(undo);
+                try {
+                    channel.truncate(start);
+                    channel.position(start);
+                } catch (IOException ignored) {
+                    // The torn tail is cut off at the next replay instead
+                }
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+                return;
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures[i] != null) {
+                batch.get(i).future.completeExceptionally(failures[i]);
+                continue;
+            }
+            for (Runnable hook : hooks.get(i)) {
+                try {
+                    hook.run();
+                } catch (RuntimeException e) {
+                    logger.severe("Error applying committed write: " + e.getMessage());
+                }
+            }
+            complete(batch.get(i), results[i]);
+        }
+        maybeStartCompaction();
+    }
+
+    private static void revert(List<Runnable> undo) {
+        for (int i = undo.size() - 1; i >= 0; i--) {
+            undo.get(i).run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void complete(PendingWrite<T> pending, Object result) {
+        pending.future.complete((T) result);
+    }
+
+    private void maybeStartCompaction() {
+        if (compacting || garbage < MIN_COMPACT_GARBAGE || garbage < live.size()) {
+            return;
+        }
+        List<Stored> copy = new ArrayList<>(live.values());
+        copy.sort(Comparator.comparingLong(Stored::id));
+        try {
+            compactMark = channel.size();
+        } catch (IOException e) {
+            logger.warning("Could not start journal compaction: " + e.getMessage());
+            return;
+        }
+        garbageAtMark = garbage;
+        compacting = true;
+        Thread thread = new Thread(() -> writeCompacted(copy), "IPWhitelist-journal-compaction");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Runs in the background: writes the live entries as of the mark to the compaction file. */
+    private void writeCompacted(List<Stored> copy) {
+        long start = System.nanoTime();
+        try (FileChannel out = FileChannel.open(compactFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream records = new ByteArrayOutputStream(64 * 1024);
+            records.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).array());
+            for (Stored stored : copy) {
+                appendAdd(records, stored.id(), stored.entry());
+                if (records.size() >= 1 << 20) {
+                    writeFully(out, records);
+                }
+            }
+            writeFully(out, records);
+            out.force(true);
+            compactReady = true;
+        } catch (IOException e) {
+            logger.warning("Journal compaction failed: " + e.getMessage());
+            // Let the writer clear the flag; it owns the compaction state
+            queue.add(new PendingWrite<>((records, afterCommit, undo) -> {
+                compacting = false;
+                return null;
+            }, new CompletableFuture<>()));
+        } finally {
+            metrics.histogram("journal.compact").recordSince(start);
+        }
+    }
+
+    /** On the writer thread: appends what was written since the mark and swaps the compacted file in. */
+    private void swapCompacted() {
+        compactReady = false;
+        compacting = false;
+        try (FileChannel out = FileChannel.open(compactFile, StandardOpenOption.WRITE)) {
+            out.position(out.size());
+            long position = compactMark;
+            long end = channel.size();
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+            out.force(true);
+        } catch (IOException e) {
+            logger.warning("Journal compaction failed: " + e.getMessage());
+            return;
+        }
+        try {
+            long before = channel.size();
+            channel.close();
+            Files.move(compactFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            garbage -= garbageAtMark;
+            logger.info("Compacted whitelist journal from " + before + " to " + channel.size() + " bytes.");
+        } catch (IOException e) {
+            // The old journal is intact unless the move happened; reopen whichever is in place
+            logger.severe("Error swapping compacted whitelist journal: " + e.getMessage());
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            } catch (IOException reopen) {
+                logger.severe("Whitelist journal is unavailable: " + reopen.getMessage());
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteArrayOutputStream records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        records.reset();
+    }
+
+    /**
+     * Queues an operation for the writer and waits for its batch to be durable.
+     * Failures are logged and reported as {@code fallback}.
+     */
+    private <T> T write(String metric, JournalOperation<T> operation, T fallback, String error) {
+        long start = System.nanoTime();
+        try {
+            return submit(operation).join();
+        } catch (CompletionException e) {
+            logger.severe(error + ": " + e.getCause().getMessage());
+            return fallback;
+        } finally {
+            metrics.histogram(metric).recordSince(start);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(JournalOperation<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IOException("Journal is closed"));
+            return future;
+        }
+        queue.add(new PendingWrite<>(operation, future));
+        return future;
+    }
+
+    @Override
+    public int loadIndex() {
+        try {
+            return loadIndexInBackground().join();
+        } catch (CompletionException e) {
+            logger.severe("Error loading whitelist index: " + e.getCause().getMessage());
+            return index.size();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> loadIndexInBackground() {
+        long start = System.nanoTime();
+        // Runs on the writer so it is ordered with mutations like any other write
+        return submit((records, afterCommit, undo) -> {
+            List<WhitelistEntry> all = new ArrayList<>(entries.values());
+            afterCommit.add(() -> {
+                index.replaceAll(all.stream().map(WhitelistEntry::range).toList());
+                index.detachSnapshot();
+                for (WhitelistListener listener : listeners) {
+                    listener.entriesLoaded(all);
+                }
+                loaded = true;
+            });
+            return null;
+        }).whenComplete((result, error) -> metrics.histogram("journal.load_index").recordSince(start))
+                .thenApply(result -> index.size());
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public WhitelistIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public void addListener(WhitelistListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Records an added entry; must be called from an operation on the writer thread. */
+    private void add(ByteArrayOutputStream records, List<Runnable> afterCommit, List<Runnable> undo,
+            WhitelistEntry entry) {
+        long id = nextId++;
+        live.put(entry.range(), new Stored(id, entry));
+        appendAdd(records, id, entry);
+        undo.add(() -> {
+            live.remove(entry.range());
+            nextId = id;
+        });
+        afterCommit.add(() -> {
+            entries.put(id, entry);
+            index.add(entry.range());
+            for (WhitelistListener listener : listeners) {
+                listener.entryAdded(entry);
+            }
+        });
+    }
+
+    /** Records a removed entry; must be called from an operation on the writer thread. */
+    private void remove(ByteArrayOutputStream records, List<Runnable> afterCommit, List<Runnable> undo,
+            Stored stored) {
+        WhitelistEntry entry = stored.entry();
+        live.remove(entry.range());
+        garbage += 2;
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(24);
+        payload.write(RECORD_REMOVE);
+        writeRange(payload, entry.range());
+        frame(records, payload);
+        undo.add(() -> {
+            live.put(entry.range(), stored);
+            garbage -= 2;
+        });
+        afterCommit.add(() -> {
+            entries.remove(stored.id());
+            index.remove(entry.range());
+            for (WhitelistListener listener : listeners) {
+                listener.entryRemoved(entry);
+            }
+        });
+    }
+
+    @Override
+    public boolean addIP(String ip, String addedBy, String playerName, UUID playerId, long expiresAt) {
+        CidrRange range = CidrRange.parse(ip);
+        return write("journal.add_ip", (records, afterCommit, undo) -> {
+            if (live.containsKey(range)) {
+                return false; // Already exists
+            }
+            add(records, afterCommit, undo,
+                    new WhitelistEntry(range, playerName, playerId, addedBy, System.currentTimeMillis(), expiresAt));
+            return true;
+        }, false, "Error adding IP");
+    }
+
+    @Override
+    public int addIPs(List<WhitelistEntry> newEntries) {
+        if (newEntries.isEmpty()) {
+            return 0;
+        }
+        return write("journal.add_ips", addAll(newEntries), 0, "Error adding IPs");
+    }
+
+    /**
+     * Like {@link #addIPs}, but a failed write is thrown rather than logged, for
+     * callers such as a migration that must not carry on past a lost batch.
+     *
+     * @throws CompletionException if the batch could not be written
+     */
+    int addIPsOrFail(List<WhitelistEntry> newEntries) {
+        long start = System.nanoTime();
+        try {
+            return submit(addAll(newEntries)).join();
+        } finally {
+            metrics.histogram("journal.add_ips").recordSince(start);
+        }
+    }
+
+    private JournalOperation<Integer> addAll(List<WhitelistEntry> newEntries) {
+        return (records, afterCommit, undo) -> {
+            int added = 0;
+            for (WhitelistEntry entry : newEntries) {
+                if (!live.containsKey(entry.range())) {
+                    add(records, afterCommit, undo, entry);
+                    added++;
+                }
+            }
+            return added;
+        };
+    }
+
+    @Override
+    public boolean removeIP(String ip) {
+        CidrRange range = CidrRange.tryParse(ip);
+        if (range == null) {
+            return false;
+        }
+        return write("journal.remove_ip", (records, afterCommit, undo) -> {
+            Stored stored = live.get(range);
+            if (stored == null) {
+                return false;
+            }
+            remove(records, afterCommit, undo, stored);
+            return true;
+        }, false, "Error removing IP");
+    }
+
+    @Override
+    public int removeIPsByPlayer(String playerName) {
+        return write("journal.remove_by_player", (records, afterCommit, undo) -> {
+            List<Stored> matching = new ArrayList<>();
+            for (Stored stored : live.values()) {
+                if (stored.entry().isForPlayer(playerName)) {
+                    matching.add(stored);
+                }
+            }
+            for (Stored stored : matching) {
+                remove(records, afterCommit, undo, stored);
+            }
+            return matching.size();
+        }, 0, "Error removing IPs by player");
+    }
+
+    @Override
+    public int removeExpired(List<WhitelistEntry> due) {
+        if (due.isEmpty()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        return write("journal.remove_expired", (records, afterCommit, undo) -> {
+            int removed = 0;
+            for (WhitelistEntry entry : due) {
+                Stored stored = live.get(entry.range());
+                if (stored != null && stored.entry().expiresAt() == entry.expiresAt() && entry.expires()
+                        && entry.expiresAt() <= now) {
+                    remove(records, afterCommit, undo, stored);
+                    removed++;
+                }
+            }
+            return removed;
+        }, 0, "Error removing expired IPs");
+    }
+
+    @Override
+    public List<String> getIPsByPlayer(String playerName) {
+        List<String> ips = new ArrayList<>();
+        for (WhitelistEntry entry : entries.values()) {
+            if (entry.isForPlayer(playerName)) {
+                ips.add(entry.range().toString());
+            }
+        }
+        return ips;
+    }
+
+    @Override
+    public long forEachEntry(Consumer<WhitelistEntry> consumer) {
+        long count = 0;
+        for (WhitelistEntry entry : entries.values()) {
+            consumer.accept(entry);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public Page getPage(ListFilter filter, long afterId, int limit) {
+        List<WhitelistEntry> page = new ArrayList<>(limit);
+        long lastId = afterId;
+        for (Map.Entry<Long, WhitelistEntry> entry : entries.tailMap(afterId, false).entrySet()) {
+            if (!filter.matches(entry.getValue())) {
+                continue;
+            }
+            if (page.size() == limit) {
+                return new Page(page, lastId, true);
+            }
+            page.add(entry.getValue());
+            lastId = entry.getKey();
+        }
+        return new Page(page, lastId, false);
+    }
+
+    @Override
+    public long findCursor(ListFilter filter, long afterId, int rows) {
+        if (rows <= 0) {
+            return afterId;
+        }
+        int seen = 0;
+        for (Map.Entry<Long, WhitelistEntry> entry : entries.tailMap(afterId, false).entrySet()) {
+            if (filter.matches(entry.getValue()) && ++seen == rows) {
+                return entry.getKey();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public List<String> getAllIPs() {
+        List<String> ips = new ArrayList<>(entries.size());
+        for (WhitelistEntry entry : entries.values()) {
+            String player = entry.playerName();
+            ips.add(player != null && !player.isEmpty()
+                    ? entry.range() + " (" + player + ")"
+                    : entry.range().toString());
+        }
+        return ips;
+    }
+
+    @Override
+    public void close() {
+        // The writer notices within one poll timeout. It is not interrupted: that would close the
+        // channel under a write in progress and fail everything still queued.
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (writer.isAlive()) {
+                logger.warning("Timed out waiting for pending journal writes.");
+                return;
+            }
+        }
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.severe("Error closing whitelist journal: " + e.getMessage());
+        }
+    }
+
+    private static void appendAdd(ByteArrayOutputStream records, long id, WhitelistEntry entry) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        payload.write(entry.bound() ? RECORD_ADD_BOUND : entry.expires() ? RECORD_ADD_EXPIRING : RECORD_ADD);
+        payload.writeBytes(ByteBuffer.allocate(16).putLong(id).putLong(entry.timestamp()).array());
+        writeRange(payload, entry.range());
+        writeString(payload, entry.playerName());
+        writeString(payload, entry.addedBy());
+        if (entry.expires() || entry.bound()) {
+            payload.writeBytes(ByteBuffer.allocate(8).putLong(entry.expiresAt()).array());
+        }
+        if (entry.bound()) {
+            payload.writeBytes(ByteBuffer.allocate(16).putLong(entry.playerId().getMostSignificantBits())
+                    .putLong(entry.playerId().getLeastSignificantBits()).array());
+        }
+        frame(records, payload);
+    }
+
+    /** Appends {@code payload} framed as length, payload, CRC32C. */
+    private static void frame(ByteArrayOutputStream records, ByteArrayOutputStream payload) {
+        byte[] bytes = payload.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        records.writeBytes(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        records.writeBytes(bytes);
+        records.writeBytes(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+
+    private static void writeRange(ByteArrayOutputStream out, CidrRange range) {
+        byte[] address = range.toBytes();
+        out.write(range.prefixLength());
+        out.write(address.length);
+        out.writeBytes(address);
+    }
+
+    private static CidrRange readRange(ByteBuffer in) {
+        int prefixLength = in.get() & 0xFF;
+        byte[] address = new byte[in.get() & 0xFF];
+        in.get(address);
+        return CidrRange.fromBytes(address, prefixLength);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            out.writeBytes(ByteBuffer.allocate(2).putShort((short) -1).array());
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeBytes(ByteBuffer.allocate(2).putShort((short) bytes.length).array());
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-bucketed latency histogram in nanoseconds.
+ * <p>
+ * Each power of two is split into eight linear sub-buckets, so any recorded
+ * value lands in a bucket at most 12.5% wider than itself, and the whole range
+ * of a long fits in under 500 buckets. Every bucket is a {@link LongAdder},
+ * which stripes its count per contending thread, so recording from many login
+ * threads at once stays cheap and never locks.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    /** Point-in-time copy of a histogram; percentiles are read from this. */
+    public record Snapshot(long count, long sumNanos, long[] buckets) {
+        /**
+         * @param quantile between 0 and 1, e.g. 0.999
+         * @return an upper bound for that quantile in nanoseconds, or 0 if nothing was recorded
+         */
+        public long percentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(buckets.length - 1);
+        }
+
+        /** What was recorded after {@code earlier}, an older snapshot of the same histogram. */
+        public Snapshot since(Snapshot earlier) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i] - earlier.buckets[i];
+                total += counts[i];
+            }
+            return new Snapshot(total, sumNanos - earlier.sumNanos, counts);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /** Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucketOf(value)].increment();
+        sum.add(value);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        // Use the bucket total so percentiles stay consistent with concurrent recording
+        return new Snapshot(total, sum.sum(), counts);
+    }
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        // value >>> (exponent - SUB_BITS) is in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+        return (exponent - SUB_BITS) * SUB_BUCKETS + (int) (value >>> (exponent - SUB_BITS));
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
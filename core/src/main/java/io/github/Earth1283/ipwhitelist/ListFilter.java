@@ -0,0 +1,79 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.Locale;
+
+/**
+ * Filter for {@code /ipwhitelist list}. Written as {@code ip:<prefix>},
+ * {@code player:<name>} or {@code by:<name>}; a bare value is an IP prefix.
+ */
+public record ListFilter(Type type, String value) {
+    public static final ListFilter NONE = new ListFilter(Type.NONE, "");
+
+    public enum Type {
+        NONE,
+        IP_PREFIX,
+        PLAYER,
+        ADDED_BY
+    }
+
+    public static ListFilter parse(String text) {
+        int colon = text.indexOf(':');
+        if (colon > 0) {
+            String key = text.substring(0, colon).toLowerCase(Locale.ROOT);
+            String value = text.substring(colon + 1);
+            switch (key) {
+                case "player", "p" -> {
+                    return new ListFilter(Type.PLAYER, value);
+                }
+                case "by", "added-by" -> {
+                    return new ListFilter(Type.ADDED_BY, value);
+                }
+                case "ip" -> {
+                    return new ListFilter(Type.IP_PREFIX, value.toLowerCase(Locale.ROOT));
+                }
+                default -> {
+                    // An IPv6 prefix such as 2001:db8 also contains a colon
+                }
+            }
+        }
+        return new ListFilter(Type.IP_PREFIX, text.toLowerCase(Locale.ROOT));
+    }
+
+    /** SQL condition (with one {@code ?} parameter, or none for {@link Type#NONE}) to AND into the query. */
+    String sqlCondition() {
+        return switch (type) {
+            case NONE -> "";
+            case IP_PREFIX -> " AND ip LIKE ? ESCAPE '\\'";
+            case PLAYER -> " AND player_key = lower(trim(?))";
+            case ADDED_BY -> " AND added_by = ? COLLATE NOCASE";
+        };
+    }
+
+    /** Value bound to the condition's parameter. */
+    String sqlParameter() {
+        if (type != Type.IP_PREFIX) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /** In-memory equivalent of {@link #sqlCondition()}, for storage backends without SQL. */
+    boolean matches(WhitelistEntry entry) {
+        return switch (type) {
+            case NONE -> true;
+            case IP_PREFIX -> entry.range().toString().startsWith(value);
+            case PLAYER -> entry.isForPlayer(value);
+            case ADDED_BY -> value.equalsIgnoreCase(entry.addedBy());
+        };
+    }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case NONE -> "";
+            case IP_PREFIX -> "ip:" + value;
+            case PLAYER -> "player:" + value;
+            case ADDED_BY -> "by:" + value;
+        };
+    }
+}
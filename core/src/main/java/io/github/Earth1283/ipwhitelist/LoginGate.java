@@ -0,0 +1,104 @@
+package io.github.Earth1283.ipwhitelist;
+
+import net.kyori.adventure.text.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * The login decision shared by every platform: whitelist lookup, flood
+ * protection, metrics and the attempt log. Each adapter calls {@link #check}
+ * from the earliest event at which its platform can refuse a connection.
+ * Safe to call from any number of threads at once.
+ * <p>
+ * In strict mode the lookup is by address and player UUID through
+ * {@link PlayerBindings}, so an entry bound to a player admits no one else.
+ */
+public final class LoginGate {
+    private final Logger logger;
+    private final WhitelistStorage storage;
+    private final PlayerBindings bindings;
+    private final FloodGuard floodGuard;
+    private final Metrics metrics;
+    private final AttemptLog attemptLog;
+    private final LatencyHistogram decisionLatency;
+    // The current settings; read once per login so a reload never splits a decision
+    private final Supplier<ConfigSnapshot> settings;
+
+    public LoginGate(Logger logger, WhitelistStorage storage, PlayerBindings bindings, FloodGuard floodGuard,
+            Metrics metrics, AttemptLog attemptLog, Supplier<ConfigSnapshot> settings) {
+        this.logger = logger;
+        this.storage = storage;
+        this.bindings = bindings;
+        this.floodGuard = floodGuard;
+        this.metrics = metrics;
+        this.attemptLog = attemptLog;
+        this.decisionLatency = metrics.histogram("prelogin");
+        this.settings = settings;
+    }
+
+    /** Whether entries bound to a player admit only that player. */
+    public boolean strict() {
+        return settings.get().strict();
+    }
+
+    /**
+     * Whether any entry covers {@code address}, ignoring player bindings. Records
+     * nothing, so an adapter can use it to defer the decision on a connection to
+     * a later event, where it calls {@link #check}.
+     */
+    public boolean admitsAddress(InetAddress address) {
+        return storage.isWhitelisted(address);
+    }
+
+    /**
+     * Decides whether a connection from {@code address} may proceed, and records
+     * the decision in the metrics, the attempt log and the flood guard. Call it
+     * once per connection.
+     *
+     * @param playerId null if the platform has not authenticated the player; only the address is checked then
+     * @return the message to disconnect with, or null to let the connection through
+     */
+    public Component check(InetAddress address, String playerName, UUID playerId) {
+        long start = System.nanoTime();
+        ConfigSnapshot current = settings.get();
+        boolean whitelisted = current.strict() && playerId != null
+                ? bindings.allows(address, playerId)
+                : storage.isWhitelisted(address);
+
+        // Whitelisted players are always let through, even while under attack
+        if (whitelisted) {
+            metrics.loginAllowed();
+            attemptLog.record(address, playerName, playerId, AttemptLog.Outcome.ALLOWED);
+            if (current.debug() && !floodGuard.isUnderAttack()) {
+                logger.info("Allowed IP: " + address.getHostAddress());
+            }
+            decisionLatency.recordSince(start);
+            return null;
+        }
+
+        metrics.loginDenied();
+        floodGuard.recordDenied();
+        if (floodGuard.isUnderAttack()) {
+            // Shed the connection as cheaply as possible: no logging, cached component. Sources over
+            // their budget are only counted, so a flood cannot fill the attempt log or the histogram.
+            if (!floodGuard.tryAcquire(address)) {
+                metrics.loginThrottled();
+                return current.throttleMessage();
+            }
+            attemptLog.record(address, playerName, playerId, AttemptLog.Outcome.DENIED);
+            decisionLatency.recordSince(start);
+            return current.kickMessage();
+        }
+
+        attemptLog.record(address, playerName, playerId, AttemptLog.Outcome.DENIED);
+        // Debug logging
+        if (current.debug()) {
+            logger.info("Denied IP: " + address.getHostAddress());
+        }
+        decisionLatency.recordSince(start);
+        return current.kickMessage();
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.Map;
+
+/**
+ * {@link PluginConfig} over a parsed YAML document (nested maps), for
+ * platforms without a configuration API of their own. Values of the wrong
+ * type are treated as missing.
+ */
+public final class MapConfig implements PluginConfig {
+    private final Map<?, ?> root;
+
+    public MapConfig(Map<?, ?> root) {
+        this.root = root != null ? root : Map.of();
+    }
+
+    private Object get(String path) {
+        Object node = root;
+        for (String key : path.split("\\.")) {
+            if (!(node instanceof Map<?, ?> map)) {
+                return null;
+            }
+            node = map.get(key);
+        }
+        return node;
+    }
+
+    @Override
+    public String getString(String path, String def) {
+        Object value = get(path);
+        return value != null && !(value instanceof Map) ? value.toString() : def;
+    }
+
+    @Override
+    public boolean getBoolean(String path, boolean def) {
+        return get(path) instanceof Boolean value ? value : def;
+    }
+
+    @Override
+    public int getInt(String path, int def) {
+        return get(path) instanceof Number value ? value.intValue() : def;
+    }
+
+    @Override
+    public long getLong(String path, long def) {
+        return get(path) instanceof Number value ? value.longValue() : def;
+    }
+
+    @Override
+    public double getDouble(String path, double def) {
+        return get(path) instanceof Number value ? value.doubleValue() : def;
+    }
+}
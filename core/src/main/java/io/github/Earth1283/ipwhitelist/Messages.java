@@ -0,0 +1,67 @@
+package io.github.Earth1283.ipwhitelist;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code messages} section of config.yml, parsed once per load. Messages
+ * are MiniMessage strings; placeholders such as {@code <ip>} are tags resolved
+ * while parsing, so their values are always shown as plain text. Immutable.
+ */
+public final class Messages {
+    private static final List<String> KEYS = List.of("no-permission", "usage", "reload", "add-success",
+            "add-success-ttl", "add-fail", "add-already-bound", "unknown-player", "remove-success", "remove-fail",
+            "remove-confirm", "remove-player-none", "remove-player-success", "confirm-success", "confirm-fail",
+            "invalid-ttl", "invalid-duration", "invalid-ip", "list-header", "list-entry", "list-more", "list-empty", "list-no-match",
+            "list-page-empty", "import-start", "import-progress", "import-done", "export-done", "invalid-file",
+            "file-not-found", "file-exists", "busy", "error", "stats-header", "stats-logins", "stats-entry",
+            "stats-reset", "attempts-disabled", "attempts-empty", "attempts-top-header", "attempts-top-entry",
+            "attempts-recent-header", "attempts-ip-header", "attempts-entry");
+
+    /** A message as written, and as parsed with no placeholders filled in. */
+    private record Template(String source, Component parsed) {
+    }
+
+    private final MiniMessage miniMessage;
+    private final Component prefix;
+    private final Map<String, Template> templates = new HashMap<>();
+
+    public Messages(PluginConfig config, MiniMessage miniMessage) {
+        this.miniMessage = miniMessage;
+        this.prefix = miniMessage.deserialize(config.getString("messages.prefix", ""));
+        for (String key : KEYS) {
+            String source = config.getString("messages." + key, "");
+            templates.put(key, new Template(source, miniMessage.deserialize(source)));
+        }
+    }
+
+    /**
+     * Renders {@code key} after the prefix, filling in each {@code <name>} in
+     * {@code placeholders} (given as name, value pairs) with its value.
+     */
+    public Component render(String key, String... placeholders) {
+        return Component.textOfChildren(prefix, line(key, placeholders));
+    }
+
+    /** Renders {@code key} without the prefix, e.g. for the lines after a header. */
+    public Component line(String key, String... placeholders) {
+        Template template = templates.get(key);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown message " + key);
+        }
+        if (placeholders.length == 0) {
+            return template.parsed();
+        }
+        TagResolver.Builder resolver = TagResolver.builder();
+        for (int i = 0; i < placeholders.length; i += 2) {
+            resolver.resolver(Placeholder.unparsed(placeholders[i], placeholders[i + 1]));
+        }
+        return miniMessage.deserialize(template.source(), resolver.build());
+    }
+}
@@ -0,0 +1,139 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of login outcome counters and named {@link LatencyHistogram}s for
+ * the pre-login check ({@code prelogin}), storage operations ({@code db.*}) and
+ * command handling on the main thread ({@code command.*}).
+ * <p>
+ * Counters only ever grow, as Prometheus expects. {@link #reset} starts a new
+ * window for {@code /ipwhitelist stats} by remembering where they stood.
+ */
+public final class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    /** The counters and histograms as of the start of the current stats window. */
+    private record Baseline(long startNanos, long allowed, long denied, long throttled,
+            Map<String, LatencyHistogram.Snapshot> histograms) {
+    }
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private volatile Baseline baseline = new Baseline(System.nanoTime(), 0, 0, 0, Map.of());
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    public void loginAllowed() {
+        allowed.increment();
+    }
+
+    public void loginDenied() {
+        denied.increment();
+    }
+
+    /** A denied login that was also over its flood-protection budget. */
+    public void loginThrottled() {
+        throttled.increment();
+    }
+
+    /** Allowed logins in the current stats window. */
+    public long allowed() {
+        return allowed.sum() - baseline.allowed();
+    }
+
+    /** Denied logins in the current stats window. */
+    public long denied() {
+        return denied.sum() - baseline.denied();
+    }
+
+    /** Throttled logins in the current stats window. */
+    public long throttled() {
+        return throttled.sum() - baseline.throttled();
+    }
+
+    /** Seconds since the metrics were created or last reset; the denominator for throughput. */
+    public double windowSeconds() {
+        return Math.max(1e-9, (System.nanoTime() - baseline.startNanos()) / 1e9);
+    }
+
+    /** Snapshots of what every histogram recorded in the current stats window, sorted by name. */
+    public Map<String, LatencyHistogram.Snapshot> snapshot() {
+        Baseline start = baseline;
+        Map<String, LatencyHistogram.Snapshot> snapshots = totals();
+        snapshots.replaceAll((name, snapshot) -> {
+            LatencyHistogram.Snapshot earlier = start.histograms().get(name);
+            return earlier != null ? snapshot.since(earlier) : snapshot;
+        });
+        return snapshots;
+    }
+
+    /** Starts a new stats window. The exported counters keep counting. */
+    public void reset() {
+        baseline = new Baseline(System.nanoTime(), allowed.sum(), denied.sum(), throttled.sum(), totals());
+    }
+
+    /** Snapshots of everything every histogram has recorded, sorted by name. */
+    private Map<String, LatencyHistogram.Snapshot> totals() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+        histograms.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format. The file is
+     * replaced atomically so a scraper never reads a half-written dump.
+     */
+    public void writePrometheus(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write("# HELP ipwhitelist_logins_total Pre-login decisions by outcome.\n");
+            writer.write("# TYPE ipwhitelist_logins_total counter\n");
+            writer.write("ipwhitelist_logins_total{result=\"allowed\"} " + allowed.sum() + "\n");
+            writer.write("ipwhitelist_logins_total{result=\"denied\"} " + denied.sum() + "\n");
+            writer.write("ipwhitelist_logins_total{result=\"throttled\"} " + throttled.sum() + "\n");
+            writer.write("# HELP ipwhitelist_latency_seconds Latency of login checks, storage operations and commands.\n");
+            writer.write("# TYPE ipwhitelist_latency_seconds summary\n");
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : totals().entrySet()) {
+                String op = entry.getKey();
+                LatencyHistogram.Snapshot snapshot = entry.getValue();
+                for (double quantile : QUANTILES) {
+                    writer.write("ipwhitelist_latency_seconds{op=\"" + op + "\",quantile=\"" + quantile + "\"} "
+                            + seconds(snapshot.percentile(quantile)) + "\n");
+                }
+                writer.write("ipwhitelist_latency_seconds_sum{op=\"" + op + "\"} " + seconds(snapshot.sumNanos()) + "\n");
+                writer.write("ipwhitelist_latency_seconds_count{op=\"" + op + "\"} " + snapshot.count() + "\n");
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /** Formats a latency for chat, e.g. {@code 850ns}, {@code 12.4µs} or {@code 3.25ms}. */
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format(Locale.ROOT, "%.1fµs", nanos / 1e3);
+        }
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+    }
+}
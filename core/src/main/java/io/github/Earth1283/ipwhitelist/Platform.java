@@ -0,0 +1,31 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * What {@link IPWhitelistCore} needs from the server or proxy it runs on.
+ */
+public interface Platform {
+    /** Folder holding config.yml, the database and everything else the plugin writes. */
+    Path dataFolder();
+
+    /** Reads config.yml from disk again. */
+    PluginConfig loadConfig();
+
+    /** Runs command results; the main thread on platforms that have one. */
+    Executor callbackExecutor();
+
+    /** Names of the players currently online, for command completion. */
+    Collection<String> onlinePlayerNames();
+
+    /**
+     * The UUID of a player the platform already knows by {@code name}, without
+     * asking Mojang; called on the command thread.
+     *
+     * @return null if the player is unknown
+     */
+    UUID playerId(String name);
+}
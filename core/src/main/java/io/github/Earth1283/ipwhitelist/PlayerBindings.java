@@ -0,0 +1,487 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Composite index from address to the players that may log in from it, used
+ * in strict mode. An entry bound to a player ({@link WhitelistEntry#playerId()})
+ * admits only that player; an unbound entry admits anyone. Kept current
+ * through {@link WhitelistListener} callbacks, which run alongside the
+ * {@link WhitelistIndex} updates.
+ * <p>
+ * Single addresses live in an open-addressing table that stores each
+ * address's player inline, so a hit reads the same slot that matched the key.
+ * Ranges are flattened into sorted disjoint intervals, each holding the small
+ * set of players (most/least significant bit pairs) of every range covering
+ * it, or {@link #ANYONE}. Writers are serialised, and {@link #allows} never
+ * locks or allocates: one hash probe and, only when that does not admit the
+ * player, one binary search, as for {@link WhitelistIndex#contains(InetAddress)}.
+ */
+public final class PlayerBindings implements WhitelistListener {
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    // Players of an unbound entry; compared by identity
+    private static final long[] ANYONE = new long[0];
+
+    // IPv4 keys are (0, unsigned address), as in CidrRange
+    private final AddressTable ipv4 = new AddressTable();
+    private final AddressTable ipv6 = new AddressTable();
+    private final RangeTable ipv4Ranges = new RangeTable(false);
+    private final RangeTable ipv6Ranges = new RangeTable(true);
+
+    /**
+     * Whether {@code playerId} may log in from {@code address}.
+     *
+     * @param playerId null if the platform does not know it; then only unbound entries match
+     */
+    public boolean allows(InetAddress address, UUID playerId) {
+        if (address instanceof Inet4Address inet4) {
+            return allows(ipv4, ipv4Ranges, 0, Integer.toUnsignedLong(IPAddresses.packIPv4(inet4)), playerId);
+        }
+        if (address instanceof Inet6Address) {
+            byte[] bytes = address.getAddress();
+            return allows(ipv6, ipv6Ranges, (long) LONG_BE.get(bytes, 0), (long) LONG_BE.get(bytes, 8), playerId);
+        }
+        return false;
+    }
+
+    private static boolean allows(AddressTable addresses, RangeTable ranges, long high, long low, UUID playerId) {
+        return addresses.admits(high, low, playerId) || admits(ranges.get(high, low), playerId);
+    }
+
+    private static boolean admits(long[] players, UUID playerId) {
+        if (players == ANYONE) {
+            return true;
+        }
+        if (players == null || playerId == null) {
+            return false;
+        }
+        long most = playerId.getMostSignificantBits();
+        long least = playerId.getLeastSignificantBits();
+        for (int i = 0; i < players.length; i += 2) {
+            if (players[i] == most && players[i + 1] == least) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void entryAdded(WhitelistEntry entry) {
+        CidrRange range = entry.range();
+        if (range.isSingleAddress()) {
+            (range.ipv6() ? ipv6 : ipv4).put(range.high(), range.low(), entry.playerId());
+        } else {
+            (range.ipv6() ? ipv6Ranges : ipv4Ranges).put(range, playersOf(entry));
+        }
+    }
+
+    @Override
+    public void entryRemoved(WhitelistEntry entry) {
+        CidrRange range = entry.range();
+        if (range.isSingleAddress()) {
+            (range.ipv6() ? ipv6 : ipv4).remove(range.high(), range.low());
+        } else {
+            (range.ipv6() ? ipv6Ranges : ipv4Ranges).remove(range);
+        }
+    }
+
+    /**
+     * Rebuilds every table aside and swaps each in with one write, so logins
+     * checked meanwhile see the old bindings or the new ones, never none.
+     */
+    @Override
+    public void entriesLoaded(Collection<WhitelistEntry> entries) {
+        List<WhitelistEntry> v4Addresses = new ArrayList<>();
+        List<WhitelistEntry> v6Addresses = new ArrayList<>();
+        Map<CidrRange, long[]> v4Ranges = new HashMap<>();
+        Map<CidrRange, long[]> v6Ranges = new HashMap<>();
+        for (WhitelistEntry entry : entries) {
+            CidrRange range = entry.range();
+            if (!range.isSingleAddress()) {
+                (range.ipv6() ? v6Ranges : v4Ranges).put(range, playersOf(entry));
+            } else {
+                (range.ipv6() ? v6Addresses : v4Addresses).add(entry);
+            }
+        }
+        ipv4.replaceAll(v4Addresses);
+        ipv6.replaceAll(v6Addresses);
+        ipv4Ranges.replaceAll(v4Ranges);
+        ipv6Ranges.replaceAll(v6Ranges);
+    }
+
+    private static long[] playersOf(WhitelistEntry entry) {
+        UUID playerId = entry.playerId();
+        return playerId == null ? ANYONE
+                : new long[] { playerId.getMostSignificantBits(), playerId.getLeastSignificantBits() };
+    }
+
+    private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int result = Long.compareUnsigned(aHigh, bHigh);
+        return result != 0 ? result : Long.compareUnsigned(aLow, bLow);
+    }
+
+    /**
+     * Open-addressing map from a single address to the one player its entry
+     * is bound to, or to anyone. A slot is one row of the array holding its
+     * state, key and player, so a probe touches a single place in memory. As in
+     * {@link IPv6Set}, a writer fills the row and then publishes it by setting
+     * the state (with release semantics, read with acquire), a published row
+     * is never written again, and replaced or removed keys leave tombstones that
+     * are swept out when the table is rebuilt.
+     */
+    private static final class AddressTable {
+        private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+        private static final long EMPTY = 0;
+        private static final long BOUND = 1; // admits the player in the row
+        private static final long OPEN = 2; // admits anyone
+        private static final long TOMBSTONE = 3;
+        // Row layout: state, key high, key low, player most and least significant bits
+        private static final int ROW = 5;
+        private static final int MIN_CAPACITY = 64;
+
+        private volatile long[] slots = new long[MIN_CAPACITY * ROW];
+        private int size;
+        private int used; // live entries + tombstones
+
+        boolean admits(long high, long low, UUID playerId) {
+            long[] table = slots;
+            int mask = table.length / ROW - 1;
+            int i = mix(high, low) & mask;
+            while (true) {
+                int row = i * ROW;
+                long state = (long) SLOTS.getAcquire(table, row);
+                if (state == EMPTY) {
+                    return false;
+                }
+                if (state != TOMBSTONE && table[row + 1] == high && table[row + 2] == low) {
+                    return state == OPEN || playerId != null && table[row + 3] == playerId.getMostSignificantBits()
+                            && table[row + 4] == playerId.getLeastSignificantBits();
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        /** @param playerId null for an entry open to anyone */
+        synchronized void put(long high, long low, UUID playerId) {
+            remove(high, low);
+            int capacity = slots.length / ROW;
+            if ((used + 1) * 2 > capacity) {
+                rehash(size * 4 > capacity ? capacity * 2 : capacity);
+            }
+            long[] table = slots;
+            int mask = table.length / ROW - 1;
+            int i = mix(high, low) & mask;
+            while (table[i * ROW] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            int row = i * ROW;
+            table[row + 1] = high;
+            table[row + 2] = low;
+            if (playerId != null) {
+                table[row + 3] = playerId.getMostSignificantBits();
+                table[row + 4] = playerId.getLeastSignificantBits();
+            }
+            SLOTS.setRelease(table, row, playerId != null ? BOUND : OPEN);
+            size++;
+            used++;
+        }
+
+        synchronized void remove(long high, long low) {
+            long[] table = slots;
+            int mask = table.length / ROW - 1;
+            int i = mix(high, low) & mask;
+            while (true) {
+                int row = i * ROW;
+                long state = table[row];
+                if (state == EMPTY) {
+                    return;
+                }
+                if (state != TOMBSTONE && table[row + 1] == high && table[row + 2] == low) {
+                    SLOTS.setRelease(table, row, TOMBSTONE);
+                    size--;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        /** Fills a new table with {@code entries}, all single addresses, and publishes it in place of this one. */
+        synchronized void replaceAll(List<WhitelistEntry> entries) {
+            int capacity = MIN_CAPACITY;
+            while (capacity < entries.size() * 2) {
+                capacity <<= 1;
+            }
+            long[] table = new long[capacity * ROW];
+            int mask = capacity - 1;
+            int count = 0;
+            for (WhitelistEntry entry : entries) {
+                long high = entry.range().high();
+                long low = entry.range().low();
+                int i = mix(high, low) & mask;
+                while (table[i * ROW] != EMPTY && (table[i * ROW + 1] != high || table[i * ROW + 2] != low)) {
+                    i = (i + 1) & mask;
+                }
+                int row = i * ROW;
+                if (table[row] == EMPTY) {
+                    count++;
+                }
+                UUID playerId = entry.playerId();
+                table[row] = playerId != null ? BOUND : OPEN;
+                table[row + 1] = high;
+                table[row + 2] = low;
+                table[row + 3] = playerId != null ? playerId.getMostSignificantBits() : 0;
+                table[row + 4] = playerId != null ? playerId.getLeastSignificantBits() : 0;
+            }
+            size = count;
+            used = count;
+            // The volatile write publishes the filled rows
+            slots = table;
+        }
+
+        private void rehash(int capacity) {
+            long[] old = slots;
+            long[] table = new long[capacity * ROW];
+            int mask = capacity - 1;
+            for (int row = 0; row < old.length; row += ROW) {
+                if (old[row] == EMPTY || old[row] == TOMBSTONE) {
+                    continue;
+                }
+                int i = mix(old[row + 1], old[row + 2]) & mask;
+                while (table[i * ROW] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                System.arraycopy(old, row, table, i * ROW, ROW);
+            }
+            used = size;
+            // The volatile write publishes the copied rows
+            slots = table;
+        }
+
+        private static int mix(long high, long low) {
+            long h = (high * 0x9E3779B97F4A7C15L) ^ low;
+            h *= 0xC2B2AE3D27D4EB4FL;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Bound and unbound ranges of one address family. Mutations rebuild the
+     * intervals and publish them as one immutable snapshot, as in
+     * {@link IPv6RangeSet}. IPv6 start and end addresses are interleaved
+     * (high, low) pairs; IPv4 ones are single unsigned values.
+     */
+    private static final class RangeTable {
+        private record Intervals(long[] starts, long[] ends, long[][] players) {
+        }
+
+        private static final Intervals EMPTY = new Intervals(new long[0], new long[0], new long[0][]);
+
+        private final boolean ipv6;
+        private final Map<CidrRange, long[]> ranges = new HashMap<>();
+        private volatile Intervals intervals = EMPTY;
+
+        RangeTable(boolean ipv6) {
+            this.ipv6 = ipv6;
+        }
+
+        long[] get(long high, long low) {
+            Intervals snapshot = intervals;
+            long[] starts = snapshot.starts;
+            long[] ends = snapshot.ends;
+            int lowIndex = 0;
+            int highIndex = snapshot.players.length - 1;
+            if (!ipv6) {
+                while (lowIndex <= highIndex) {
+                    int mid = (lowIndex + highIndex) >>> 1;
+                    if (starts[mid] <= low) {
+                        lowIndex = mid + 1;
+                    } else {
+                        highIndex = mid - 1;
+                    }
+                }
+                // highIndex is now the last interval starting at or before the address
+                return highIndex >= 0 && low <= ends[highIndex] ? snapshot.players[highIndex] : null;
+            }
+            while (lowIndex <= highIndex) {
+                int mid = (lowIndex + highIndex) >>> 1;
+                if (compare(starts[2 * mid], starts[2 * mid + 1], high, low) <= 0) {
+                    lowIndex = mid + 1;
+                } else {
+                    highIndex = mid - 1;
+                }
+            }
+            return highIndex >= 0 && compare(high, low, ends[2 * highIndex], ends[2 * highIndex + 1]) <= 0
+                    ? snapshot.players[highIndex]
+                    : null;
+        }
+
+        synchronized void put(CidrRange range, long[] players) {
+            ranges.put(range, players);
+            rebuild();
+        }
+
+        synchronized void remove(CidrRange range) {
+            if (ranges.remove(range) != null) {
+                rebuild();
+            }
+        }
+
+        synchronized void replaceAll(Map<CidrRange, long[]> newRanges) {
+            ranges.clear();
+            ranges.putAll(newRanges);
+            rebuild();
+        }
+
+        private void rebuild() {
+            IntervalBuilder builder = new IntervalBuilder(ranges);
+            builder.build();
+            intervals = ipv6 ? builder.wide() : builder.narrow();
+        }
+    }
+
+    /**
+     * Flattens ranges into disjoint intervals. Two CIDR ranges either nest or
+     * do not overlap at all, so one sweep in start order, keeping a stack of the
+     * ranges enclosing the current address, yields at most two intervals per range.
+     */
+    private static final class IntervalBuilder {
+        private final Map<CidrRange, long[]> ranges;
+        private final List<CidrRange> open = new ArrayList<>(); // outermost first
+        private final long[] starts;
+        private final long[] ends;
+        private final long[][] players;
+        private int count;
+        // First address not yet assigned to an interval
+        private long cursorHigh;
+        private long cursorLow;
+        private boolean exhausted; // the cursor ran past the last IPv6 address
+
+        IntervalBuilder(Map<CidrRange, long[]> ranges) {
+            this.ranges = ranges;
+            this.starts = new long[ranges.size() * 4];
+            this.ends = new long[ranges.size() * 4];
+            this.players = new long[ranges.size() * 2][];
+        }
+
+        void build() {
+            List<CidrRange> sorted = new ArrayList<>(ranges.keySet());
+            // Enclosing ranges sort before the ranges they contain
+            sorted.sort((a, b) -> {
+                int result = compare(a.high(), a.low(), b.high(), b.low());
+                return result != 0 ? result : Integer.compare(a.prefixLength(), b.prefixLength());
+            });
+            for (CidrRange range : sorted) {
+                while (!open.isEmpty() && compare(innermost().lastHigh(), innermost().lastLow(),
+                        range.high(), range.low()) < 0) {
+                    close();
+                }
+                if (!open.isEmpty() && compare(cursorHigh, cursorLow, range.high(), range.low()) < 0) {
+                    // The stretch before this range is covered by the enclosing ranges alone
+                    emit(range.low() == 0 ? range.high() - 1 : range.high(), range.low() - 1);
+                }
+                open.add(range);
+                cursorHigh = range.high();
+                cursorLow = range.low();
+            }
+            while (!open.isEmpty()) {
+                close();
+            }
+        }
+
+        /** The intervals with both halves of each address, for IPv6. */
+        RangeTable.Intervals wide() {
+            return new RangeTable.Intervals(Arrays.copyOf(starts, count * 2), Arrays.copyOf(ends, count * 2),
+                    Arrays.copyOf(players, count));
+        }
+
+        /** The intervals with only the low half of each address, for IPv4. */
+        RangeTable.Intervals narrow() {
+            long[] narrowStarts = new long[count];
+            long[] narrowEnds = new long[count];
+            for (int i = 0; i < count; i++) {
+                narrowStarts[i] = starts[2 * i + 1];
+                narrowEnds[i] = ends[2 * i + 1];
+            }
+            return new RangeTable.Intervals(narrowStarts, narrowEnds, Arrays.copyOf(players, count));
+        }
+
+        private CidrRange innermost() {
+            return open.get(open.size() - 1);
+        }
+
+        /** Ends the innermost open range, emitting whatever part of it is still unassigned. */
+        private void close() {
+            CidrRange range = innermost();
+            long lastHigh = range.lastHigh();
+            long lastLow = range.lastLow();
+            if (!exhausted && compare(cursorHigh, cursorLow, lastHigh, lastLow) <= 0) {
+                emit(lastHigh, lastLow);
+                if (lastHigh == -1 && lastLow == -1) {
+                    exhausted = true;
+                } else {
+                    cursorLow = lastLow + 1;
+                    cursorHigh = cursorLow == 0 ? lastHigh + 1 : lastHigh;
+                }
+            }
+            open.remove(open.size() - 1);
+        }
+
+        /** Adds the interval from the cursor to the given end, covered by every open range. */
+        private void emit(long endHigh, long endLow) {
+            long[] covering = union();
+            if (count > 0 && adjoins(count - 1) && Arrays.equals(players[count - 1], covering)) {
+                // Same players as the interval just before, e.g. neighbouring unbound ranges
+                ends[2 * count - 2] = endHigh;
+                ends[2 * count - 1] = endLow;
+                return;
+            }
+            starts[2 * count] = cursorHigh;
+            starts[2 * count + 1] = cursorLow;
+            ends[2 * count] = endHigh;
+            ends[2 * count + 1] = endLow;
+            players[count] = covering;
+            count++;
+        }
+
+        /** Whether interval {@code index} ends right before the cursor. */
+        private boolean adjoins(int index) {
+            long endHigh = ends[2 * index];
+            long endLow = ends[2 * index + 1];
+            return endLow + 1 == cursorLow && (endLow == -1 ? endHigh + 1 : endHigh) == cursorHigh;
+        }
+
+        private long[] union() {
+            int length = 0;
+            for (CidrRange range : open) {
+                long[] bound = ranges.get(range);
+                if (bound == ANYONE) {
+                    return ANYONE;
+                }
+                length += bound.length;
+            }
+            if (open.size() == 1) {
+                return ranges.get(open.get(0));
+            }
+            long[] result = new long[length];
+            int offset = 0;
+            for (CidrRange range : open) {
+                long[] bound = ranges.get(range);
+                System.arraycopy(bound, 0, result, offset, bound.length);
+                offset += bound.length;
+            }
+            return result;
+        }
+    }
+}
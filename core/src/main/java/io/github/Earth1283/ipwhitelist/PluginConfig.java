@@ -0,0 +1,17 @@
+package io.github.Earth1283.ipwhitelist;
+
+/**
+ * Read access to config.yml, backed by whichever configuration API the
+ * platform provides. Paths are dotted, e.g. {@code flood-protection.enabled}.
+ */
+public interface PluginConfig {
+    String getString(String path, String def);
+
+    boolean getBoolean(String path, boolean def);
+
+    int getInt(String path, int def);
+
+    long getLong(String path, long def);
+
+    double getDouble(String path, double def);
+}
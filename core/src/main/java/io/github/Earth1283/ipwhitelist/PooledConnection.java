@@ -0,0 +1,54 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A JDBC connection together with the prepared statements created on it, so
+ * each SQL string is compiled once per connection rather than once per call.
+ * Not thread-safe: a pooled connection is owned by one thread at a time.
+ */
+final class PooledConnection implements AutoCloseable {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Returns the cached statement for {@code sql} with its parameters cleared.
+     * Callers must not close it.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /** Runs a parameterless statement through the cache. */
+    void execute(String sql) throws SQLException {
+        prepare(sql).execute();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+        connection.close();
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed-size pool of read-only SQLite connections. In WAL mode readers never
+ * block the writer or each other, so concurrent reads scale with the pool size.
+ */
+final class ReadPool {
+    @FunctionalInterface
+    interface ReadOperation<T> {
+        T execute(PooledConnection connection) throws SQLException;
+    }
+
+    private final List<PooledConnection> connections;
+    private final BlockingQueue<PooledConnection> idle;
+
+    ReadPool(List<PooledConnection> connections) {
+        this.connections = List.copyOf(connections);
+        this.idle = new ArrayBlockingQueue<>(connections.size(), false, connections);
+    }
+
+    <T> T read(ReadOperation<T> operation) throws SQLException {
+        PooledConnection connection;
+        try {
+            connection = idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+        try {
+            return operation.execute(connection);
+        } finally {
+            idle.add(connection);
+        }
+    }
+
+    void close() throws SQLException {
+        for (PooledConnection connection : connections) {
+            connection.close();
+        }
+    }
+}
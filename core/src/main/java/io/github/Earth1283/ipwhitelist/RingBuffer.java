@@ -0,0 +1,89 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * <p>
+ * Each slot carries a sequence number that says whose turn it is: a producer
+ * claims a position with one CAS on the tail and publishes into its slot by
+ * advancing that slot's sequence; the consumer takes a slot once its sequence
+ * shows it was published, and hands it back a lap later. {@link #offer} never
+ * waits: when the buffer is full it fails and the caller decides what to drop.
+ */
+final class RingBuffer<T> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head; // written by the consumer only
+
+    /** @param capacity rounded up to a power of two */
+    RingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.mask = this.capacity - 1;
+        this.items = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** @return false, without waiting, if the buffer is full */
+    boolean offer(T item) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long diff = sequences.get(slot) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(slot, item);
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false; // The consumer has not freed this slot from the previous lap
+            } else {
+                position = tail.get(); // Another producer claimed it first
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code max} published items to {@code sink}, in order.
+     * Only one thread may drain.
+     *
+     * @return the number of items moved
+     */
+    int drainTo(Collection<? super T> sink, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                break; // Not yet published
+            }
+            sink.add(items.get(slot));
+            items.set(slot, null);
+            sequences.set(slot, position + capacity);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    /** Approximate number of buffered items. */
+    int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Applies numbered schema migrations to a SQLite database, tracking the
+ * current version in {@code PRAGMA user_version}.
+ * <p>
+ * Each pending step runs in its own transaction together with the version
+ * bump, so a failed step leaves the database at the previous version. The
+ * version is read again inside the transaction, which makes it safe for
+ * several servers sharing a file to start at the same time: the write lock
+ * serialises them and only the first applies each step.
+ */
+final class SchemaMigrations {
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * @param version     the {@code user_version} after this step; steps run in ascending order
+     * @param description logged when the step runs
+     */
+    record Migration(int version, String description, Step step) {
+    }
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Brings {@code connection}'s database up to the last version in {@code migrations}.
+     *
+     * @throws SQLException if a step fails; that step is rolled back
+     */
+    static void migrate(Connection connection, String name, List<Migration> migrations, Logger logger)
+            throws SQLException {
+        int latest = migrations.get(migrations.size() - 1).version();
+        if (userVersion(connection) >= latest) {
+            return;
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (Migration migration : migrations) {
+                if (userVersion(connection) >= migration.version()) {
+                    connection.commit();
+                    continue;
+                }
+                logger.info("Migrating " + name + " to schema version " + migration.version() + ": "
+                        + migration.description());
+                try {
+                    migration.step().apply(connection);
+                    try (Statement stmt = connection.createStatement()) {
+                        stmt.execute("PRAGMA user_version = " + migration.version());
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw new SQLException("Migration of " + name + " to version " + migration.version()
+                            + " failed: " + e.getMessage(), e);
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    static int userVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.Earth1283.ipwhitelist;
+
+import net.kyori.adventure.text.Component;
+
+import java.util.UUID;
+
+/**
+ * Whoever runs an {@code /ipwhitelist} command, on any platform.
+ */
+public interface Sender {
+    /** Id shared by the console and anything else that is not a player. */
+    UUID CONSOLE_ID = new UUID(0, 0);
+
+    String name();
+
+    /** The player's UUID, or {@link #CONSOLE_ID}. */
+    UUID uniqueId();
+
+    boolean hasPermission(String permission);
+
+    void sendMessage(Component message);
+}
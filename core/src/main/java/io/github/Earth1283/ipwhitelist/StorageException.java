@@ -0,0 +1,8 @@
+package io.github.Earth1283.ipwhitelist;
+
+/** A {@link WhitelistStorage} backend could not be opened or read. */
+public class StorageException extends Exception {
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
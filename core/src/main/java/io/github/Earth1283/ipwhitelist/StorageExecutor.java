@@ -0,0 +1,85 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs storage work for commands off the server main thread.
+ * <p>
+ * Each operation gets its own virtual thread; a semaphore caps how many may be
+ * in flight so a burst of commands cannot pile up unbounded work. Results and
+ * failures are handed to {@code callbackExecutor}, which the plugin points at
+ * the Bukkit scheduler so callbacks run back on the main thread.
+ */
+public class StorageExecutor {
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("IPWhitelist-storage-", 0).factory());
+    private final Semaphore permits;
+    private final Executor callbackExecutor;
+    private final Logger logger;
+
+    public StorageExecutor(int maxInFlight, Executor callbackExecutor, Logger logger) {
+        this.permits = new Semaphore(Math.max(1, maxInFlight));
+        this.callbackExecutor = callbackExecutor;
+        this.logger = logger;
+    }
+
+    /**
+     * Schedules {@code work} in the background.
+     *
+     * @return false if too many operations are already in flight; nothing is scheduled then
+     */
+    public <T> boolean submit(Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        if (!permits.tryAcquire()) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    T result = work.call();
+                    callbackExecutor.execute(() -> onSuccess.accept(result));
+                } catch (Throwable t) {
+                    logger.log(Level.SEVERE, "Background storage operation failed", t);
+                    callbackExecutor.execute(() -> onFailure.accept(t));
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected because we are shutting down
+            permits.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hands {@code task} to the callback executor; lets long-running work report
+     * progress without waiting for its final result.
+     */
+    public void runCallback(Runnable task) {
+        callbackExecutor.execute(task);
+    }
+
+    /**
+     * Stops accepting work and waits briefly for in-flight operations so they
+     * finish before the database is closed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for background storage operations to finish.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
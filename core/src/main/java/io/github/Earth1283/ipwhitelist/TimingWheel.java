@@ -0,0 +1,249 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Hierarchical timing wheel for deadlines in epoch milliseconds, shared by
+ * everything in the plugin that expires.
+ * <p>
+ * Level 0 has one slot per tick; each higher level has {@value #SLOTS} times
+ * coarser slots, so six levels cover thousands of years at one-second ticks.
+ * A timeout is linked into the slot of the lowest level whose span still
+ * reaches its deadline, and is moved down a level each time the wheel turns
+ * past that slot. Scheduling and cancelling are O(1) regardless of how many
+ * timeouts are pending, and the wheel thread only touches the timeouts in
+ * the slots it passes.
+ * <p>
+ * All timeouts that fall due in one tick are handed to their handler as a
+ * single list, on the wheel thread, so handlers can act on them in bulk.
+ */
+public final class TimingWheel implements AutoCloseable {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+
+    /** A scheduled deadline. */
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadline;
+        private final Consumer<List<T>> handler;
+        private long deadlineTick;
+        private Timeout<?> prev;
+        private Timeout<?> next;
+        private Slot slot;
+
+        private Timeout(T value, long deadline, Consumer<List<T>> handler) {
+            this.value = value;
+            this.deadline = deadline;
+            this.handler = handler;
+        }
+
+        public T value() {
+            return value;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+    }
+
+    /** Doubly linked list of the timeouts in one slot. */
+    private static final class Slot {
+        private Timeout<?> head;
+
+        void add(Timeout<?> timeout) {
+            timeout.slot = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<?> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /** Unlinks and returns the whole list. */
+        Timeout<?> takeAll() {
+            Timeout<?> all = head;
+            head = null;
+            return all;
+        }
+    }
+
+    private final long tickMillis;
+    private final Logger logger;
+    private final Slot[][] levels = new Slot[LEVELS][SLOTS];
+    // Timeouts whose deadline had already passed when they were scheduled
+    private final Slot overdue = new Slot();
+    private final Object lock = new Object();
+    private final Thread thread;
+    private long currentTick;
+    private int pending;
+    private volatile boolean running = true;
+
+    public TimingWheel(long tickMillis, Logger logger) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.logger = logger;
+        for (Slot[] level : levels) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Slot();
+            }
+        }
+        this.currentTick = System.currentTimeMillis() / this.tickMillis;
+        this.thread = new Thread(this::run, "IPWhitelist-timing-wheel");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Schedules {@code value} to be passed to {@code handler} once {@code deadline}
+     * (epoch milliseconds) has passed. A deadline in the past fires on the next tick.
+     */
+    public <T> Timeout<T> schedule(long deadline, T value, Consumer<List<T>> handler) {
+        Timeout<T> timeout = new Timeout<>(value, deadline, handler);
+        // Rounded up, so a timeout never fires before its deadline
+        timeout.deadlineTick = (deadline + tickMillis - 1) / tickMillis;
+        synchronized (lock) {
+            insert(timeout);
+            pending++;
+        }
+        return timeout;
+    }
+
+    /** @return false if the timeout already fired or was cancelled */
+    public boolean cancel(Timeout<?> timeout) {
+        synchronized (lock) {
+            if (timeout.slot == null) {
+                return false;
+            }
+            timeout.slot.remove(timeout);
+            pending--;
+            return true;
+        }
+    }
+
+    /** Number of timeouts that have neither fired nor been cancelled. */
+    public int pending() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    private void insert(Timeout<?> timeout) {
+        long ticks = timeout.deadlineTick - currentTick;
+        if (ticks <= 0) {
+            overdue.add(timeout);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (ticks < 1L << (SLOT_BITS * (level + 1))) {
+                levels[level][(int) (timeout.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK].add(timeout);
+                return;
+            }
+        }
+        // Beyond the top level: park it as far out as the wheel reaches; it is re-placed when cascaded
+        long parked = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        levels[LEVELS - 1][(int) (parked >>> (SLOT_BITS * (LEVELS - 1))) & SLOT_MASK].add(timeout);
+    }
+
+    private void run() {
+        while (running) {
+            long target = System.currentTimeMillis() / tickMillis;
+            List<Timeout<?>> expired = new ArrayList<>();
+            synchronized (lock) {
+                collect(overdue.takeAll(), expired);
+                while (currentTick < target) {
+                    advance(expired);
+                }
+                pending -= expired.size();
+            }
+            if (!expired.isEmpty()) {
+                dispatch(expired);
+            }
+            long next = (currentTick + 1) * tickMillis;
+            LockSupport.parkNanos(Math.max(1, next - System.currentTimeMillis()) * 1_000_000);
+        }
+    }
+
+    /** Moves the wheel one tick forward, collecting what falls due. */
+    private void advance(List<Timeout<?>> expired) {
+        long tick = ++currentTick;
+        // Each time a level wraps, the next slot of the level above is redistributed below it
+        int level = 1;
+        while (level < LEVELS && (tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+            level++;
+        }
+        for (int l = level - 1; l >= 1; l--) {
+            Timeout<?> timeout = levels[l][(int) (tick >>> (SLOT_BITS * l)) & SLOT_MASK].takeAll();
+            while (timeout != null) {
+                Timeout<?> next = timeout.next;
+                insert(timeout);
+                timeout = next;
+            }
+        }
+        collect(levels[0][(int) tick & SLOT_MASK].takeAll(), expired);
+        collect(overdue.takeAll(), expired);
+    }
+
+    private void collect(Timeout<?> timeout, List<Timeout<?>> expired) {
+        while (timeout != null) {
+            Timeout<?> next = timeout.next;
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+            expired.add(timeout);
+            timeout = next;
+        }
+    }
+
+    /** Calls each handler once with all of its expired values. */
+    @SuppressWarnings("unchecked")
+    private void dispatch(List<Timeout<?>> expired) {
+        Map<Consumer<List<Object>>, List<Object>> batches = new IdentityHashMap<>();
+        for (Timeout<?> timeout : expired) {
+            Consumer<List<Object>> handler = (Consumer<List<Object>>) (Consumer<?>) timeout.handler;
+            batches.computeIfAbsent(handler, key -> new ArrayList<>()).add(timeout.value);
+        }
+        for (Map.Entry<Consumer<List<Object>>, List<Object>> batch : batches.entrySet()) {
+            try {
+                batch.getKey().accept(batch.getValue());
+            } catch (RuntimeException e) {
+                logger.severe("Error handling expired timeouts: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
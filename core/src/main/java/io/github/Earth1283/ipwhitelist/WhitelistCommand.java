@@ -0,0 +1,613 @@
+package io.github.Earth1283.ipwhitelist;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * {@code /ipwhitelist} and its completions, independent of the platform; each
+ * adapter wraps its own command sender in a {@link Sender} and calls
+ * {@link #execute} and {@link #complete}.
+ */
+public class WhitelistCommand {
+    private static final int MAX_COMPLETIONS = 50;
+    private static final List<String> SUB_COMMANDS = List.of("add", "remove", "list", "reload", "confirm", "import",
+            "export", "stats", "attempts");
+    private static final int ATTEMPT_ROWS = 10;
+    private static final int MAX_ATTEMPT_ROWS = 50;
+    private static final List<String> TTL_SUGGESTIONS = List.of("1h", "12h", "24h", "7d", "30d");
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d{1,6})([smhdw])");
+    private static final String TRANSFER_FOLDER = "exports";
+
+    private final IPWhitelistCore core;
+    private final WhitelistStorage storage;
+    private final ConfirmationManager confirmationManager;
+    private final StorageExecutor storageExecutor;
+    private final WhitelistTransfer transfer;
+    private final CompletionIndex completionIndex;
+    private final Metrics metrics;
+    private final AttemptLog attemptLog;
+    // Keyset cursors of pages each sender has seen, keyed by page number. Cursors are
+    // read on the command thread and written by callbacks, which may run on any thread
+    private final Map<UUID, ListSession> listSessions = new ConcurrentHashMap<>();
+
+    private record ListSession(ListFilter filter, int pageSize, NavigableMap<Integer, Long> cursors) {
+    }
+
+    private record ListResult(long cursor, WhitelistStorage.Page page) {
+    }
+
+    public WhitelistCommand(IPWhitelistCore core, WhitelistStorage storage,
+            ConfirmationManager confirmationManager, StorageExecutor storageExecutor,
+            CompletionIndex completionIndex, Metrics metrics, AttemptLog attemptLog) {
+        this.core = core;
+        this.storage = storage;
+        this.confirmationManager = confirmationManager;
+        this.storageExecutor = storageExecutor;
+        this.transfer = new WhitelistTransfer(storage);
+        this.completionIndex = completionIndex;
+        this.metrics = metrics;
+        this.attemptLog = attemptLog;
+    }
+
+    private void sendMessage(Sender sender, String key, String... placeholders) {
+        sender.sendMessage(core.messages().render(key, placeholders));
+    }
+
+    /**
+     * Runs storage work in the background and hands the result to {@code callback}
+     * on the main thread. Tells the sender if the work was refused or failed.
+     */
+    private <T> void runAsync(Sender sender, Callable<T> work, Consumer<T> callback) {
+        if (!storageExecutor.submit(work, callback, error -> sendMessage(sender, "error"))) {
+            sendMessage(sender, "busy");
+        }
+    }
+
+    /**
+     * Resolves a file name against the {@code exports} folder in the plugin
+     * folder, refusing anything that would escape it or touch the plugin's own files.
+     */
+    private Path resolveTransferFile(String name) {
+        Path folder = core.platform().dataFolder().resolve(TRANSFER_FOLDER).toAbsolutePath().normalize();
+        Path file = folder.resolve(name).normalize();
+        return file.startsWith(folder) && !file.equals(folder) && !core.isOwnFile(file) ? file : null;
+    }
+
+    /** Times the main-thread part of each subcommand; storage work is timed by the storage backend. */
+    public void execute(Sender sender, String[] args) {
+        String name = args.length > 0 && SUB_COMMANDS.contains(args[0].toLowerCase()) ? args[0].toLowerCase() : "other";
+        long start = System.nanoTime();
+        try {
+            run(sender, args);
+        } finally {
+            metrics.histogram("command." + name).recordSince(start);
+        }
+    }
+
+    private void run(Sender sender, String[] args) {
+        if (!sender.hasPermission("ipwhitelist.admin")) {
+            sendMessage(sender, "no-permission");
+            return;
+        }
+
+        if (args.length == 0) {
+            sendMessage(sender, "usage");
+            return;
+        }
+
+        String subCommand = args[0].toLowerCase();
+        switch (subCommand) {
+            case "add" -> {
+                if (args.length < 2) {
+                    sendMessage(sender, "usage");
+                    return;
+                }
+                // Accepts a single IPv4/IPv6 address or a CIDR range, stored in canonical form
+                CidrRange range = CidrRange.tryParse(args[1]);
+                if (range == null) {
+                    sendMessage(sender, "invalid-ip");
+                    return;
+                }
+                String ip = range.toString();
+                // add <ip> [player] [--ttl <duration>]
+                String player = null;
+                long ttl = 0;
+                for (int i = 2; i < args.length; i++) {
+                    if (args[i].equalsIgnoreCase("--ttl")) {
+                        ttl = i + 1 < args.length ? parseDuration(args[++i]) : -1;
+                        if (ttl <= 0) {
+                            sendMessage(sender, "invalid-ttl");
+                            return;
+                        }
+                    } else if (player == null) {
+                        player = args[i];
+                    } else {
+                        sendMessage(sender, "usage");
+                        return;
+                    }
+                }
+                // The player is bound by UUID, given directly or looked up by name, so strict mode can tell them apart
+                UUID playerId = player != null ? parseUUID(player) : null;
+                String playerName = playerId == null ? player : null;
+                if (playerName != null) {
+                    playerId = core.platform().playerId(playerName);
+                    if (playerId == null && core.settings().strict()) {
+                        sendMessage(sender, "unknown-player", "ip", ip, "player", playerName);
+                        return;
+                    }
+                }
+                UUID boundId = playerId;
+                String shownPlayer = player != null ? player : "None";
+                long expiresAt;
+                try {
+                    expiresAt = ttl > 0 ? Math.addExact(System.currentTimeMillis(), ttl) : 0;
+                } catch (ArithmeticException e) {
+                    sendMessage(sender, "invalid-ttl");
+                    return;
+                }
+                String duration = formatDuration(ttl);
+
+                String addedBy = sender.name();
+
+                runAsync(sender, () -> storage.addIP(ip, addedBy, playerName, boundId, expiresAt), added -> {
+                    if (added) {
+                        sendMessage(sender, expiresAt > 0 ? "add-success-ttl" : "add-success", "ip", ip, "player",
+                                shownPlayer, "ttl", duration);
+                    } else if (playerName != null || boundId != null) {
+                        // Each address is stored once, so it cannot gain a second player
+                        sendMessage(sender, "add-already-bound", "ip", ip, "player", shownPlayer);
+                    } else {
+                        sendMessage(sender, "add-fail", "ip", ip);
+                    }
+                });
+            }
+            case "remove" -> {
+                if (args.length < 2) {
+                    sendMessage(sender, "usage");
+                    return;
+                }
+                String target = args[1];
+
+                // Check if target is an IP or CIDR range
+                CidrRange range = CidrRange.tryParse(target);
+                if (range != null) {
+                    String ip = range.toString();
+                    runAsync(sender, () -> storage.removeIP(ip), removed -> {
+                        if (removed) {
+                            sendMessage(sender, "remove-success", "ip", ip);
+                        } else {
+                            sendMessage(sender, "remove-fail", "ip", ip);
+                        }
+                    });
+                } else {
+                    // Treat as player name
+                    runAsync(sender, () -> storage.getIPsByPlayer(target), userIPs -> {
+                        if (userIPs.isEmpty()) {
+                            sendMessage(sender, "remove-player-none", "player", target);
+                            return;
+                        }
+                        // Request confirmation
+                        confirmationManager.requestConfirmation(sender, () -> runAsync(sender,
+                                () -> storage.removeIPsByPlayer(target),
+                                count -> sendMessage(sender, "remove-player-success",
+                                        "count", String.valueOf(count), "player", target)),
+                                core.messages().render("remove-confirm",
+                                        "count", String.valueOf(userIPs.size()), "player", target));
+                    });
+                }
+            }
+            case "confirm" -> {
+                if (confirmationManager.confirm(sender)) {
+                    sendMessage(sender, "confirm-success");
+                } else {
+                    sendMessage(sender, "confirm-fail");
+                }
+            }
+            case "import" -> {
+                if (args.length < 2) {
+                    sendMessage(sender, "usage");
+                    return;
+                }
+                Path file = resolveTransferFile(args[1]);
+                if (file == null) {
+                    sendMessage(sender, "invalid-file");
+                    return;
+                }
+                if (!Files.isRegularFile(file)) {
+                    sendMessage(sender, "file-not-found", "file", args[1]);
+                    return;
+                }
+                String addedBy = sender.name();
+                sendMessage(sender, "import-start", "file", args[1]);
+                // Progress is posted back to the main thread while the import keeps streaming
+                runAsync(sender, () -> transfer.importFile(file, addedBy,
+                        progress -> storageExecutor.runCallback(() -> sendMessage(sender, "import-progress",
+                                "lines", String.valueOf(progress.lines()),
+                                "added", String.valueOf(progress.added())))),
+                        result -> sendMessage(sender, "import-done",
+                                "added", String.valueOf(result.added()),
+                                "duplicates", String.valueOf(result.duplicates()),
+                                "invalid", String.valueOf(result.invalid())));
+            }
+            case "export" -> {
+                // export <file> [--overwrite]
+                boolean overwrite = args.length == 3 && args[2].equalsIgnoreCase("--overwrite");
+                if (args.length < 2 || args.length > 3 || args.length == 3 && !overwrite) {
+                    sendMessage(sender, "usage");
+                    return;
+                }
+                Path file = resolveTransferFile(args[1]);
+                if (file == null) {
+                    sendMessage(sender, "invalid-file");
+                    return;
+                }
+                if (!overwrite && Files.exists(file)) {
+                    sendMessage(sender, "file-exists", "file", args[1]);
+                    return;
+                }
+                runAsync(sender, () -> transfer.exportFile(file),
+                        count -> sendMessage(sender, "export-done", "count", String.valueOf(count), "file", args[1]));
+            }
+            case "reload" -> {
+                core.reload();
+                sendMessage(sender, "reload");
+            }
+            case "list" -> {
+                // list [page] [filter]
+                int page = 1;
+                int filterIndex = 1;
+                if (args.length > 1 && args[1].length() <= 6 && args[1].chars().allMatch(Character::isDigit)) {
+                    page = Math.max(1, Integer.parseInt(args[1]));
+                    filterIndex = 2;
+                }
+                ListFilter filter = args.length > filterIndex ? ListFilter.parse(args[filterIndex]) : ListFilter.NONE;
+                showListPage(sender, page, filter);
+            }
+            case "stats" -> {
+                if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+                    metrics.reset();
+                    sendMessage(sender, "stats-reset");
+                    return;
+                }
+                showStats(sender);
+            }
+            case "attempts" -> showAttempts(sender, args);
+            default -> sendMessage(sender, "usage");
+        }
+    }
+
+    /**
+     * Fetches and renders one page of the whitelist. Page cursors are remembered
+     * per sender, so paging forward is a keyset lookup from the previous page and
+     * only the requested rows are ever read.
+     */
+    private void showListPage(Sender sender, int page, ListFilter filter) {
+        int pageSize = core.settings().listPageSize();
+        ListSession session = listSessions.get(sender.uniqueId());
+        if (session == null || !session.filter().equals(filter) || session.pageSize() != pageSize) {
+            session = new ListSession(filter, pageSize, new ConcurrentSkipListMap<>(Map.of(1, 0L)));
+            listSessions.put(sender.uniqueId(), session);
+        }
+        ListSession current = session;
+        Map.Entry<Integer, Long> known = session.cursors().floorEntry(page);
+        long knownCursor = known.getValue();
+        int skipRows = (page - known.getKey()) * pageSize;
+
+        runAsync(sender, () -> {
+            long cursor = storage.findCursor(filter, knownCursor, skipRows);
+            if (cursor < 0) {
+                return new ListResult(cursor, new WhitelistStorage.Page(List.of(), cursor, false));
+            }
+            return new ListResult(cursor, storage.getPage(filter, cursor, pageSize));
+        }, result -> {
+            WhitelistStorage.Page pageResult = result.page();
+            if (pageResult.entries().isEmpty()) {
+                if (page == 1 && !filter.equals(ListFilter.NONE)) {
+                    sendMessage(sender, "list-no-match", "filter", filter.toString());
+                } else if (page == 1) {
+                    sendMessage(sender, "list-empty");
+                } else {
+                    sendMessage(sender, "list-page-empty", "page", String.valueOf(page));
+                }
+                return;
+            }
+            current.cursors().put(page, result.cursor());
+            if (pageResult.hasMore()) {
+                current.cursors().put(page + 1, pageResult.lastId());
+            }
+
+            // Render the whole page as one component so it goes out as a single chat packet
+            Messages messages = core.messages();
+            List<Component> lines = new ArrayList<>();
+            lines.add(messages.render("list-header", "page", String.valueOf(page)));
+            for (WhitelistEntry entry : pageResult.entries()) {
+                String text = entry.range().toString();
+                if (entry.playerName() != null && !entry.playerName().isEmpty()) {
+                    text += " (" + entry.playerName() + ")";
+                }
+                if (entry.expires()) {
+                    text += " [expires in " + formatDuration(entry.expiresAt() - System.currentTimeMillis()) + "]";
+                }
+                lines.add(messages.line("list-entry", "entry", text));
+            }
+            if (pageResult.hasMore()) {
+                lines.add(messages.line("list-more", "next", String.valueOf(page + 1), "filter", filter.toString()));
+            }
+            sendLines(sender, lines);
+        });
+    }
+
+    private void showStats(Sender sender) {
+        double window = metrics.windowSeconds();
+        long allowed = metrics.allowed();
+        long denied = metrics.denied();
+        Messages messages = core.messages();
+        List<Component> lines = new ArrayList<>();
+        lines.add(messages.render("stats-header", "window", formatWindow((long) window)));
+        lines.add(messages.line("stats-logins",
+                "allowed", String.valueOf(allowed),
+                "denied", String.valueOf(denied),
+                "throttled", String.valueOf(metrics.throttled()),
+                "rate", formatRate((allowed + denied) / window)));
+        metrics.snapshot().forEach((name, snapshot) -> {
+            if (snapshot.count() == 0) {
+                return;
+            }
+            lines.add(messages.line("stats-entry",
+                    "name", name,
+                    "count", String.valueOf(snapshot.count()),
+                    "rate", formatRate(snapshot.count() / window),
+                    "p50", Metrics.formatNanos(snapshot.percentile(0.5)),
+                    "p99", Metrics.formatNanos(snapshot.percentile(0.99)),
+                    "p999", Metrics.formatNanos(snapshot.percentile(0.999))));
+        });
+        sendLines(sender, lines);
+    }
+
+    /**
+     * {@code attempts [recent [count]]}, {@code attempts top [window] [subnet|ip]}
+     * or {@code attempts ip <address> [count]}. Queries run in the background
+     * against the attempt log's indexes.
+     */
+    private void showAttempts(Sender sender, String[] args) {
+        if (!attemptLog.isEnabled()) {
+            sendMessage(sender, "attempts-disabled");
+            return;
+        }
+        String mode = args.length > 1 ? args[1].toLowerCase(Locale.ROOT) : "recent";
+        switch (mode) {
+            case "top" -> {
+                long window = args.length > 2 ? parseDuration(args[2]) : TimeUnit.HOURS.toMillis(1);
+                if (window <= 0) {
+                    sendMessage(sender, "invalid-duration");
+                    return;
+                }
+                boolean bySubnet = args.length <= 3 || !args[3].equalsIgnoreCase("ip");
+                long since = System.currentTimeMillis() - window;
+                runAsync(sender, () -> attemptLog.topDenied(since, bySubnet, ATTEMPT_ROWS), offenders -> {
+                    if (offenders.isEmpty()) {
+                        sendMessage(sender, "attempts-empty");
+                        return;
+                    }
+                    Messages messages = core.messages();
+                    List<Component> lines = new ArrayList<>();
+                    lines.add(messages.render("attempts-top-header",
+                            "kind", bySubnet ? "subnets" : "addresses", "window", formatDuration(window)));
+                    for (AttemptLog.Offender offender : offenders) {
+                        lines.add(messages.line("attempts-top-entry",
+                                "source", offender.key().toString(), "count", String.valueOf(offender.attempts())));
+                    }
+                    sendLines(sender, lines);
+                });
+            }
+            case "recent", "ip" -> {
+                InetAddress address = null;
+                int countIndex = 2;
+                if (mode.equals("ip")) {
+                    CidrRange range = args.length > 2 ? CidrRange.tryParse(args[2]) : null;
+                    if (range == null || !range.isSingleAddress()) {
+                        sendMessage(sender, "invalid-ip");
+                        return;
+                    }
+                    try {
+                        address = InetAddress.getByAddress(range.toBytes());
+                    } catch (UnknownHostException e) {
+                        sendMessage(sender, "invalid-ip");
+                        return;
+                    }
+                    countIndex = 3;
+                }
+                int count = ATTEMPT_ROWS;
+                if (args.length > countIndex && args[countIndex].length() <= 3
+                        && args[countIndex].chars().allMatch(Character::isDigit)) {
+                    count = Math.max(1, Math.min(MAX_ATTEMPT_ROWS, Integer.parseInt(args[countIndex])));
+                }
+                InetAddress source = address;
+                int limit = count;
+                runAsync(sender, () -> attemptLog.recent(source, limit), attempts -> {
+                    if (attempts.isEmpty()) {
+                        sendMessage(sender, "attempts-empty");
+                        return;
+                    }
+                    Messages messages = core.messages();
+                    List<Component> lines = new ArrayList<>();
+                    lines.add(source == null
+                            ? messages.render("attempts-recent-header")
+                            : messages.render("attempts-ip-header", "ip", source.getHostAddress()));
+                    long now = System.currentTimeMillis();
+                    for (AttemptLog.Attempt attempt : attempts) {
+                        String player = attempt.playerName() != null ? attempt.playerName() : "?";
+                        lines.add(messages.line("attempts-entry",
+                                "age", formatDuration(now - attempt.time()),
+                                "outcome", attempt.outcome().name().toLowerCase(Locale.ROOT),
+                                "ip", attempt.address().getHostAddress(),
+                                "player", player));
+                    }
+                    sendLines(sender, lines);
+                });
+            }
+            default -> sendMessage(sender, "usage");
+        }
+    }
+
+    /** Sends a header and the lines below it as one message. */
+    private static void sendLines(Sender sender, List<Component> lines) {
+        sender.sendMessage(Component.join(JoinConfiguration.newlines(), lines));
+    }
+
+    private static String formatRate(double perSecond) {
+        return String.format(Locale.ROOT, perSecond < 10 ? "%.2f" : "%.0f", perSecond);
+    }
+
+    private static String formatWindow(long seconds) {
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + "m " + seconds % 60 + "s";
+        }
+        return seconds / 3600 + "h " + seconds % 3600 / 60 + "m";
+    }
+
+    /** @return the UUID written in canonical form as {@code text}, or null if it is a player name */
+    private static UUID parseUUID(String text) {
+        if (text.length() != 36) {
+            return null; // Also rejects the short forms UUID.fromString tolerates
+        }
+        try {
+            return UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a duration such as {@code 30m}, {@code 24h} or {@code 1d12h}
+     * (units s, m, h, d, w).
+     *
+     * @return the duration in milliseconds, or -1 if {@code text} is malformed or
+     *         the duration does not fit in a {@code long}
+     */
+    private static long parseDuration(String text) {
+        Matcher matcher = DURATION_PART.matcher(text.toLowerCase(Locale.ROOT));
+        long total = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            long unit = switch (matcher.group(2)) {
+                case "s" -> TimeUnit.SECONDS.toMillis(1);
+                case "m" -> TimeUnit.MINUTES.toMillis(1);
+                case "h" -> TimeUnit.HOURS.toMillis(1);
+                case "d" -> TimeUnit.DAYS.toMillis(1);
+                default -> TimeUnit.DAYS.toMillis(7);
+            };
+            try {
+                total = Math.addExact(total, Math.multiplyExact(Long.parseLong(matcher.group(1)), unit));
+            } catch (ArithmeticException e) {
+                return -1; // Enough parts to overflow, which would otherwise wrap round
+            }
+            end = matcher.end();
+        }
+        return end > 0 && end == text.length() ? total : -1;
+    }
+
+    /** Formats a duration with its two largest units, e.g. {@code 1d 12h} or {@code 45m}. */
+    private static String formatDuration(long millis) {
+        long seconds = Math.max(0, millis / 1000);
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + "m" + (seconds % 60 > 0 ? " " + seconds % 60 + "s" : "");
+        }
+        if (seconds < 86400) {
+            return seconds / 3600 + "h" + (seconds % 3600 >= 60 ? " " + seconds % 3600 / 60 + "m" : "");
+        }
+        return seconds / 86400 + "d" + (seconds % 86400 >= 3600 ? " " + seconds % 86400 / 3600 + "h" : "");
+    }
+
+    /**
+     * Suggests whitelisted IPs and associated player names for {@code remove}.
+     * Served from the in-memory {@link CompletionIndex}; safe to call off the main thread.
+     */
+    public List<String> completeRemoveTarget(String prefix) {
+        List<String> suggestions = new ArrayList<>(completionIndex.completeIPs(prefix, MAX_COMPLETIONS));
+        suggestions.addAll(completionIndex.completePlayers(prefix, MAX_COMPLETIONS - suggestions.size()));
+        return suggestions;
+    }
+
+    /** Completes the last of {@code args}, the arguments after the command label. */
+    public List<String> complete(Sender sender, String[] args) {
+        if (!sender.hasPermission("ipwhitelist.admin")) {
+            return Collections.emptyList();
+        }
+
+        if (args.length == 1) {
+            return SUB_COMMANDS.stream()
+                    .filter(s -> s.startsWith(args[0].toLowerCase()))
+                    .collect(Collectors.toList());
+        }
+
+        if (args.length == 2) {
+            if (args[0].equalsIgnoreCase("remove")) {
+                return completeRemoveTarget(args[1]);
+            }
+            if (args[0].equalsIgnoreCase("add")) {
+                // Return nothing for IP part? Or maybe history? Just empty for now.
+                return Collections.emptyList();
+            }
+        }
+
+        if (args[0].equalsIgnoreCase("attempts")) {
+            List<String> options = switch (args.length) {
+                case 2 -> List.of("top", "recent", "ip");
+                case 3 -> args[1].equalsIgnoreCase("top") ? List.of("1h", "24h", "7d") : List.of();
+                case 4 -> args[1].equalsIgnoreCase("top") ? List.of("subnet", "ip") : List.of();
+                default -> List.of();
+            };
+            String current = args[args.length - 1].toLowerCase();
+            return options.stream().filter(s -> s.startsWith(current)).collect(Collectors.toList());
+        }
+
+        if (args.length == 3 && args[0].equalsIgnoreCase("export")) {
+            return "--overwrite".startsWith(args[2].toLowerCase()) ? List.of("--overwrite") : Collections.emptyList();
+        }
+
+        if (args.length >= 3 && args[0].equalsIgnoreCase("add")) {
+            String current = args[args.length - 1].toLowerCase();
+            if (args[args.length - 2].equalsIgnoreCase("--ttl")) {
+                return TTL_SUGGESTIONS.stream().filter(s -> s.startsWith(current)).collect(Collectors.toList());
+            }
+            if (current.startsWith("-")) {
+                return "--ttl".startsWith(current) ? List.of("--ttl") : Collections.emptyList();
+            }
+            if (args.length == 3) {
+                // Suggest online players for association
+                return core.platform().onlinePlayerNames().stream()
+                        .filter(name -> name.toLowerCase().startsWith(current))
+                        .collect(Collectors.toList());
+            }
+        }
+
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * One row of the whitelist table.
+ *
+ * @param playerName associated player, or {@code null}
+ * @param playerId   the player's UUID, or {@code null}; in strict mode only this player may use the entry
+ * @param addedBy    who added the entry, or {@code null} for imported legacy rows
+ * @param timestamp  when the entry was added, in epoch milliseconds
+ * @param expiresAt  when the entry is removed again, in epoch milliseconds, or 0 if it is permanent
+ */
+public record WhitelistEntry(CidrRange range, String playerName, UUID playerId, String addedBy, long timestamp,
+        long expiresAt) {
+    public WhitelistEntry(CidrRange range, String playerName, String addedBy, long timestamp) {
+        this(range, playerName, null, addedBy, timestamp, 0);
+    }
+
+    public WhitelistEntry(CidrRange range, String playerName, String addedBy, long timestamp, long expiresAt) {
+        this(range, playerName, null, addedBy, timestamp, expiresAt);
+    }
+
+    public boolean expires() {
+        return expiresAt > 0;
+    }
+
+    /**
+     * Whether the entry was added for {@code name}, compared trimmed and without
+     * case like the database's {@code player_key} column.
+     */
+    public boolean isForPlayer(String name) {
+        return playerName != null
+                && playerName.trim().toLowerCase(Locale.ROOT).equals(name.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /** Whether the entry is tied to one player's account rather than open to anyone at its address. */
+    public boolean bound() {
+        return playerId != null;
+    }
+}
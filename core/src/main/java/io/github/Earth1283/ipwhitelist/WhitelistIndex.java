@@ -0,0 +1,155 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * In-memory mirror of the whitelist table used by the pre-login check.
+ * Lookups are lock-free and never create a {@code String} or {@code InetAddress};
+ * mutations are applied by {@link WhitelistStorage} after the corresponding
+ * database write succeeds. On startup a {@link WhitelistSnapshot} may be
+ * attached to answer lookups until the database has been loaded.
+ */
+public class WhitelistIndex {
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /** The four sets making up the index, swapped as one by {@link #replaceAll}. */
+    private record Sets(IPv4Set ipv4, IPv4RangeSet ipv4Ranges, IPv6Set ipv6, IPv6RangeSet ipv6Ranges) {
+        Sets() {
+            this(new IPv4Set(), new IPv4RangeSet(), new IPv6Set(), new IPv6RangeSet());
+        }
+
+        int size() {
+            return ipv4.size() + ipv4Ranges.size() + ipv6.size() + ipv6Ranges.size();
+        }
+    }
+
+    private volatile Sets sets = new Sets();
+    private volatile WhitelistSnapshot snapshot;
+
+    public boolean contains(InetAddress address) {
+        if (address instanceof Inet4Address inet4) {
+            return contains(IPAddresses.packIPv4(inet4));
+        }
+        if (address instanceof Inet6Address) {
+            // getAddress() hands back a 16-byte copy; it does not escape, so the JIT can usually elide it
+            byte[] bytes = address.getAddress();
+            return contains((long) LONG_BE.get(bytes, 0), (long) LONG_BE.get(bytes, 8));
+        }
+        return false;
+    }
+
+    public boolean contains(String ip) {
+        CidrRange range = CidrRange.tryParse(ip);
+        if (range == null || !range.isSingleAddress()) {
+            return false;
+        }
+        return range.ipv6() ? contains(range.high(), range.low()) : contains(range.ipv4Network());
+    }
+
+    public boolean contains(int address) {
+        Sets current = sets;
+        if (current.ipv4().contains(address) || current.ipv4Ranges().contains(address)) {
+            return true;
+        }
+        WhitelistSnapshot attached = snapshot;
+        return attached != null && attached.contains(address);
+    }
+
+    public boolean contains(long high, long low) {
+        Sets current = sets;
+        if (current.ipv6().contains(high, low) || current.ipv6Ranges().contains(high, low)) {
+            return true;
+        }
+        WhitelistSnapshot attached = snapshot;
+        return attached != null && attached.contains(high, low);
+    }
+
+    /** Also answers lookups from {@code snapshot} until {@link #detachSnapshot()}. */
+    public void attachSnapshot(WhitelistSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public void detachSnapshot() {
+        snapshot = null;
+    }
+
+    /** Writes the live contents (not an attached snapshot) to a snapshot file. */
+    public void writeSnapshot(Path file) throws IOException {
+        Sets current = sets;
+        WhitelistSnapshot.write(file, current.ipv4().toArray(), current.ipv6().toArray(),
+                current.ipv4Ranges().intervals(), current.ipv6Ranges().intervals());
+    }
+
+    // Mutations are serialised so none can land in sets that replaceAll is about to drop
+
+    public synchronized boolean add(CidrRange range) {
+        Sets current = sets;
+        if (range.ipv6()) {
+            return range.isSingleAddress()
+                    ? current.ipv6().add(range.high(), range.low())
+                    : current.ipv6Ranges().add(range);
+        }
+        return range.isSingleAddress() ? current.ipv4().add(range.ipv4Network()) : current.ipv4Ranges().add(range);
+    }
+
+    /**
+     * Adds many entries at once. Ranges are collected per family so each
+     * interval set is rebuilt once rather than once per range.
+     */
+    public synchronized void addAll(Collection<CidrRange> entries) {
+        addAll(sets, entries);
+    }
+
+    /**
+     * Replaces the whole contents with {@code entries}. The new sets are built
+     * aside and published in one write, so a lookup sees either the old
+     * contents or the new ones, never an empty index in between.
+     */
+    public synchronized void replaceAll(Collection<CidrRange> entries) {
+        Sets replacement = new Sets();
+        addAll(replacement, entries);
+        sets = replacement;
+    }
+
+    private static void addAll(Sets target, Collection<CidrRange> entries) {
+        List<CidrRange> v4Ranges = new ArrayList<>();
+        List<CidrRange> v6Ranges = new ArrayList<>();
+        for (CidrRange range : entries) {
+            if (!range.isSingleAddress()) {
+                (range.ipv6() ? v6Ranges : v4Ranges).add(range);
+            } else if (range.ipv6()) {
+                target.ipv6().add(range.high(), range.low());
+            } else {
+                target.ipv4().add(range.ipv4Network());
+            }
+        }
+        target.ipv4Ranges().addAll(v4Ranges);
+        target.ipv6Ranges().addAll(v6Ranges);
+    }
+
+    public synchronized boolean remove(CidrRange range) {
+        Sets current = sets;
+        if (range.ipv6()) {
+            return range.isSingleAddress()
+                    ? current.ipv6().remove(range.high(), range.low())
+                    : current.ipv6Ranges().remove(range);
+        }
+        return range.isSingleAddress()
+                ? current.ipv4().remove(range.ipv4Network())
+                : current.ipv4Ranges().remove(range);
+    }
+
+    public int size() {
+        return sets.size();
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.util.Collection;
+
+/**
+ * Receives whitelist changes from {@link WhitelistStorage} once they are
+ * committed, in commit order. Callbacks run on the database writer thread and
+ * must be quick and non-blocking.
+ */
+public interface WhitelistListener {
+    void entryAdded(WhitelistEntry entry);
+
+    void entryRemoved(WhitelistEntry entry);
+
+    /**
+     * Called when the whole whitelist has been (re)loaded; any previously held
+     * state should be replaced by {@code entries}.
+     */
+    void entriesLoaded(Collection<WhitelistEntry> entries);
+}
@@ -0,0 +1,257 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Read-only, memory-mapped copy of the lookup index, used to answer logins
+ * while the database is still being loaded on startup.
+ * <p>
+ * The file holds a fixed header, the single IPv4 and IPv6 addresses sorted as
+ * unsigned values, the merged IPv4 and IPv6 range intervals sorted by start,
+ * and a CRC32C of everything before it. Lookups binary search the mapped pages
+ * directly: nothing is parsed or copied onto the heap, so opening a snapshot
+ * costs the same however large the whitelist is.
+ */
+public final class WhitelistSnapshot {
+    private static final int MAGIC = 0x49505753; // "IPWS"
+    private static final int VERSION = 1;
+    // magic, version, created-at, then the four section counts
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 * 4;
+    private static final int CHECKSUM_BYTES = 4;
+
+    private final ByteBuffer buffer;
+    private final long createdAt;
+    private final int ipv4Count;
+    private final int ipv6Count;
+    private final int ipv4RangeCount;
+    private final int ipv6RangeCount;
+    private final int ipv4Offset;
+    private final int ipv6Offset;
+    private final int ipv4RangeOffset;
+    private final int ipv6RangeOffset;
+
+    private WhitelistSnapshot(ByteBuffer buffer, long createdAt, int ipv4Count, int ipv6Count, int ipv4RangeCount,
+            int ipv6RangeCount) {
+        this.buffer = buffer;
+        this.createdAt = createdAt;
+        this.ipv4Count = ipv4Count;
+        this.ipv6Count = ipv6Count;
+        this.ipv4RangeCount = ipv4RangeCount;
+        this.ipv6RangeCount = ipv6RangeCount;
+        this.ipv4Offset = HEADER_BYTES;
+        this.ipv6Offset = align8(ipv4Offset + 4 * ipv4Count);
+        this.ipv4RangeOffset = ipv6Offset + 16 * ipv6Count;
+        this.ipv6RangeOffset = ipv4RangeOffset + 8 * ipv4RangeCount;
+    }
+
+    /**
+     * Maps and verifies a snapshot file.
+     *
+     * @return the snapshot, or null if there is none or it is damaged (which is logged)
+     */
+    public static WhitelistSnapshot open(Path file, Logger logger) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + CHECKSUM_BYTES || size > Integer.MAX_VALUE) {
+                logger.warning("Ignoring whitelist snapshot with invalid size: " + file);
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                logger.warning("Ignoring whitelist snapshot with unknown format: " + file);
+                return null;
+            }
+            WhitelistSnapshot snapshot = new WhitelistSnapshot(buffer, buffer.getLong(8), buffer.getInt(16),
+                    buffer.getInt(20), buffer.getInt(24), buffer.getInt(28));
+            if (snapshot.checksumOffset() != size - CHECKSUM_BYTES) {
+                logger.warning("Ignoring truncated whitelist snapshot: " + file);
+                return null;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(0, snapshot.checksumOffset()));
+            if ((int) crc.getValue() != buffer.getInt(snapshot.checksumOffset())) {
+                logger.warning("Ignoring whitelist snapshot with a bad checksum: " + file);
+                return null;
+            }
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warning("Could not read whitelist snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot atomically: to a temporary file that is synced and then
+     * moved over {@code file}.
+     *
+     * @param ipv4         single IPv4 addresses, any order
+     * @param ipv6         single IPv6 addresses as (high, low) pairs, any order
+     * @param ipv4Ranges   merged IPv4 intervals as {@code {starts, ends}}, sorted
+     * @param ipv6Ranges   merged IPv6 intervals as {@code {starts, ends}} of (high, low) pairs, sorted
+     */
+    static void write(Path file, int[] ipv4, long[] ipv6, long[][] ipv4Ranges, long[][] ipv6Ranges)
+            throws IOException {
+        int[] sortedIPv4 = sortUnsigned(ipv4);
+        long[] sortedIPv6 = sortUnsigned128(ipv6);
+        WhitelistSnapshot layout = new WhitelistSnapshot(null, 0, sortedIPv4.length, sortedIPv6.length / 2,
+                ipv4Ranges[0].length, ipv6Ranges[0].length / 2);
+        ByteBuffer buffer = ByteBuffer.allocate(layout.checksumOffset() + CHECKSUM_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis())
+                .putInt(layout.ipv4Count).putInt(layout.ipv6Count)
+                .putInt(layout.ipv4RangeCount).putInt(layout.ipv6RangeCount);
+        for (int address : sortedIPv4) {
+            buffer.putInt(address);
+        }
+        buffer.position(layout.ipv6Offset);
+        for (long half : sortedIPv6) {
+            buffer.putLong(half);
+        }
+        for (int i = 0; i < layout.ipv4RangeCount; i++) {
+            buffer.putInt((int) ipv4Ranges[0][i]).putInt((int) ipv4Ranges[1][i]);
+        }
+        for (int i = 0; i < layout.ipv6RangeCount; i++) {
+            buffer.putLong(ipv6Ranges[0][2 * i]).putLong(ipv6Ranges[0][2 * i + 1])
+                    .putLong(ipv6Ranges[1][2 * i]).putLong(ipv6Ranges[1][2 * i + 1]);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, layout.checksumOffset());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public boolean contains(int address) {
+        int low = 0;
+        int high = ipv4Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Integer.compareUnsigned(buffer.getInt(ipv4Offset + 4 * mid), address);
+            if (cmp == 0) {
+                return true;
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // Last interval starting at or before the address
+        low = 0;
+        high = ipv4RangeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(buffer.getInt(ipv4RangeOffset + 8 * mid), address) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && Integer.compareUnsigned(address, buffer.getInt(ipv4RangeOffset + 8 * high + 4)) <= 0;
+    }
+
+    public boolean contains(long addressHigh, long addressLow) {
+        int low = 0;
+        int high = ipv6Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = ipv6Offset + 16 * mid;
+            int cmp = compare(buffer.getLong(offset), buffer.getLong(offset + 8), addressHigh, addressLow);
+            if (cmp == 0) {
+                return true;
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        low = 0;
+        high = ipv6RangeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = ipv6RangeOffset + 32 * mid;
+            if (compare(buffer.getLong(offset), buffer.getLong(offset + 8), addressHigh, addressLow) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0) {
+            return false;
+        }
+        int end = ipv6RangeOffset + 32 * high + 16;
+        return compare(addressHigh, addressLow, buffer.getLong(end), buffer.getLong(end + 8)) <= 0;
+    }
+
+    /** Number of single addresses plus merged range intervals. */
+    public int size() {
+        return ipv4Count + ipv6Count + ipv4RangeCount + ipv6RangeCount;
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    private int checksumOffset() {
+        return ipv6RangeOffset + 32 * ipv6RangeCount;
+    }
+
+    private static int align8(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    private static int[] sortUnsigned(int[] values) {
+        int[] sorted = new int[values.length];
+        // Flipping the sign bit maps unsigned order onto signed order
+        for (int i = 0; i < values.length; i++) {
+            sorted[i] = values[i] ^ Integer.MIN_VALUE;
+        }
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] ^= Integer.MIN_VALUE;
+        }
+        return sorted;
+    }
+
+    private static long[] sortUnsigned128(long[] pairs) {
+        Integer[] order = new Integer[pairs.length / 2];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(pairs[2 * a], pairs[2 * a + 1], pairs[2 * b], pairs[2 * b + 1]));
+        long[] sorted = new long[pairs.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[2 * i] = pairs[2 * order[i]];
+            sorted[2 * i + 1] = pairs[2 * order[i] + 1];
+        }
+        return sorted;
+    }
+
+    private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int result = Long.compareUnsigned(aHigh, bHigh);
+        return result != 0 ? result : Long.compareUnsigned(aLow, bLow);
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Persistent whitelist store plus the in-memory {@link WhitelistIndex} it keeps
+ * current. Implemented by {@link DatabaseManager} (SQLite) and
+ * {@link JournalStorage} (append-only journal); selected by
+ * {@code storage.backend} in config.yml.
+ * <p>
+ * Mutations and queries block until done and are meant for background
+ * threads; {@link #isWhitelisted(InetAddress)} only reads memory and is safe
+ * on the login path. Listeners are notified of every committed change.
+ */
+public interface WhitelistStorage {
+    /**
+     * One page of {@code /ipwhitelist list} output.
+     *
+     * @param lastId  id of the last entry on the page; the keyset cursor for the next page
+     * @param hasMore whether another page follows
+     */
+    record Page(List<WhitelistEntry> entries, long lastId, boolean hasMore) {
+    }
+
+    void init() throws StorageException;
+
+    /**
+     * Loads every whitelisted IP into the in-memory index and hands the full
+     * entry list to registered listeners.
+     *
+     * @return the number of entries loaded
+     */
+    int loadIndex();
+
+    /**
+     * Like {@link #loadIndex()} but without waiting, for when a snapshot already
+     * answers lookups. Mutations submitted afterwards are applied on top of the
+     * loaded state. Completes exceptionally if the load fails; an attached
+     * snapshot is then left in place for the caller to deal with.
+     */
+    CompletableFuture<Integer> loadIndexInBackground();
+
+    /** Whether the whitelist has been loaded, i.e. memory is authoritative. */
+    boolean isLoaded();
+
+    WhitelistIndex getIndex();
+
+    /**
+     * Registers a listener for committed changes. Register before {@link #loadIndex()}
+     * so the listener also receives the initial contents.
+     */
+    void addListener(WhitelistListener listener);
+
+    /**
+     * @param ip a single IPv4/IPv6 address or CIDR range; stored in canonical form
+     * @return false if it was already whitelisted
+     */
+    default boolean addIP(String ip, String addedBy, String playerName) {
+        return addIP(ip, addedBy, playerName, null, 0);
+    }
+
+    /**
+     * Like {@link #addIP(String, String, String)}, for an entry bound to
+     * {@code playerId} (null for none) that is removed again once
+     * {@code expiresAt} (epoch milliseconds) has passed; 0 means never.
+     */
+    boolean addIP(String ip, String addedBy, String playerName, UUID playerId, long expiresAt);
+
+    /**
+     * Adds a batch of entries together, skipping any that already exist.
+     *
+     * @return the number of entries actually added
+     */
+    int addIPs(List<WhitelistEntry> entries);
+
+    boolean removeIP(String ip);
+
+    int removeIPsByPlayer(String playerName);
+
+    /**
+     * Removes expired entries together. An entry is only removed if it is still
+     * stored with the same expiry and that expiry has passed, so one that was
+     * removed and re-added in the meantime survives.
+     *
+     * @return the number of entries removed
+     */
+    int removeExpired(List<WhitelistEntry> entries);
+
+    List<String> getIPsByPlayer(String playerName);
+
+    default boolean isWhitelisted(String ip) {
+        return getIndex().contains(ip);
+    }
+
+    default boolean isWhitelisted(InetAddress address) {
+        return getIndex().contains(address);
+    }
+
+    /**
+     * Streams every entry, in insertion order, to {@code consumer} without
+     * materialising the whole whitelist.
+     *
+     * @return the number of entries visited
+     */
+    long forEachEntry(Consumer<WhitelistEntry> consumer) throws StorageException;
+
+    /**
+     * Fetches up to {@code limit} entries matching {@code filter} whose id is
+     * greater than {@code afterId}, in id order (keyset pagination).
+     */
+    Page getPage(ListFilter filter, long afterId, int limit);
+
+    /**
+     * Finds the keyset cursor {@code rows} matching entries past {@code afterId}.
+     *
+     * @return the id to pass as {@code afterId}, or -1 if there are fewer rows than that
+     */
+    long findCursor(ListFilter filter, long afterId, int rows);
+
+    List<String> getAllIPs();
+
+    /**
+     * Writes the in-memory whitelist to a snapshot file for the next startup.
+     *
+     * @return false if nothing was written because the whitelist is not loaded yet
+     */
+    default boolean writeSnapshot(Path file) throws IOException {
+        if (!isLoaded()) {
+            return false;
+        }
+        getIndex().writeSnapshot(file);
+        return true;
+    }
+
+    /** Applies changes made by other servers sharing the store; a no-op for unshared backends. */
+    default void pollChanges() {
+    }
+
+    /**
+     * Drops change-log entries older than {@code retentionMillis}; a no-op for
+     * backends without a shared change log.
+     *
+     * @return the number of log entries removed
+     */
+    default int compactChanges(long retentionMillis) {
+        return 0;
+    }
+
+    void close();
+}
@@ -0,0 +1,192 @@
+package io.github.Earth1283.ipwhitelist;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streams whitelist entries between the database and plain-text or CSV files.
+ * <p>
+ * Imports read one line at a time and hand entries to the database in large
+ * batches, each committed as a single {@code INSERT OR IGNORE} transaction, so
+ * memory use does not depend on file size. Accepted line formats:
+ * <ul>
+ * <li>{@code 203.0.113.7} or {@code 2001:db8::/48} — a bare address or CIDR range</li>
+ * <li>{@code 203.0.113.7 Steve} — address followed by a player name</li>
+ * <li>{@code ip,player,added_by,timestamp,expires_at,player_uuid} — CSV as written by {@link #exportFile};
+ * trailing columns optional</li>
+ * </ul>
+ * Blank lines and lines starting with {@code #} are ignored.
+ */
+public class WhitelistTransfer {
+    private static final int BATCH_SIZE = 5_000;
+    private static final int PROGRESS_INTERVAL = 50_000;
+    private static final String CSV_HEADER = "ip,player,added_by,timestamp,expires_at,player_uuid";
+
+    public record ImportResult(long lines, long added, long duplicates, long invalid) {
+    }
+
+    private final WhitelistStorage storage;
+
+    public WhitelistTransfer(WhitelistStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Imports every entry in {@code file}. Blocks until the last batch is committed.
+     *
+     * @param addedBy  recorded as the adder for lines that do not name one
+     * @param progress called every {@value #PROGRESS_INTERVAL} lines with the running totals
+     */
+    public ImportResult importFile(Path file, String addedBy, Consumer<ImportResult> progress) throws IOException {
+        long lines = 0;
+        long added = 0;
+        long submitted = 0;
+        long invalid = 0;
+        boolean firstEntry = true;
+        List<WhitelistEntry> batch = new ArrayList<>(BATCH_SIZE);
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                WhitelistEntry entry = parseLine(line, addedBy);
+                if (entry == null) {
+                    // A CSV header row is not an error
+                    if (!(firstEntry && line.indexOf(',') >= 0)) {
+                        invalid++;
+                    }
+                } else {
+                    batch.add(entry);
+                }
+                firstEntry = false;
+
+                if (batch.size() >= BATCH_SIZE) {
+                    added += storage.addIPs(batch);
+                    submitted += batch.size();
+                    batch.clear();
+                }
+                if (lines % PROGRESS_INTERVAL == 0) {
+                    progress.accept(new ImportResult(lines, added, submitted - added, invalid));
+                }
+            }
+        }
+        added += storage.addIPs(batch);
+        submitted += batch.size();
+        return new ImportResult(lines, added, submitted - added, invalid);
+    }
+
+    private static WhitelistEntry parseLine(String line, String defaultAddedBy) {
+        String[] fields = line.indexOf(',') >= 0 ? line.split(",", -1) : line.split("\\s+");
+        CidrRange range = CidrRange.tryParse(unquote(fields[0]));
+        if (range == null) {
+            return null;
+        }
+        String player = fields.length > 1 ? emptyToNull(unquote(fields[1])) : null;
+        String addedBy = fields.length > 2 ? emptyToNull(unquote(fields[2])) : null;
+        long timestamp = System.currentTimeMillis();
+        if (fields.length > 3) {
+            try {
+                timestamp = Long.parseLong(unquote(fields[3]));
+            } catch (NumberFormatException ignored) {
+                // Keep the import time
+            }
+        }
+        long expiresAt = 0;
+        if (fields.length > 4 && !fields[4].isBlank()) {
+            try {
+                expiresAt = Long.parseLong(unquote(fields[4]));
+            } catch (NumberFormatException ignored) {
+                // Import as permanent
+            }
+        }
+        UUID playerId = null;
+        if (fields.length > 5 && !fields[5].isBlank()) {
+            try {
+                playerId = UUID.fromString(unquote(fields[5]));
+            } catch (IllegalArgumentException ignored) {
+                // Import unbound
+            }
+        }
+        return new WhitelistEntry(range, player, playerId, addedBy != null ? addedBy : defaultAddedBy, timestamp,
+                expiresAt);
+    }
+
+    private static String unquote(String field) {
+        field = field.strip();
+        if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+            return field.substring(1, field.length() - 1);
+        }
+        return field;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Writes every entry to {@code file}: CSV with a header if the name ends in
+     * {@code .csv}, otherwise one {@code ip [player]} per line. The file is
+     * written to a temporary sibling first and moved into place when complete,
+     * replacing any existing file; callers decide whether that is allowed.
+     *
+     * @return the number of entries written
+     */
+    public long exportFile(Path file) throws IOException {
+        boolean csv = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.getParent());
+        long count;
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            if (csv) {
+                writer.write(CSV_HEADER);
+                writer.newLine();
+            }
+            count = storage.forEachEntry(entry -> {
+                try {
+                    writer.write(csv ? toCsv(entry) : toPlain(entry));
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (StorageException e) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Storage error: " + e.getMessage(), e);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    private static String toPlain(WhitelistEntry entry) {
+        return entry.playerName() != null ? entry.range() + " " + entry.playerName() : entry.range().toString();
+    }
+
+    private static String toCsv(WhitelistEntry entry) {
+        return entry.range() + "," + csvField(entry.playerName()) + "," + csvField(entry.addedBy()) + ","
+                + entry.timestamp() + "," + (entry.expires() ? String.valueOf(entry.expiresAt()) : "") + ","
+                + (entry.bound() ? entry.playerId().toString() : "");
+    }
+
+    private static String csvField(String value) {
+        // Player and sender names never legitimately contain commas
+        return value == null ? "" : value.replace(",", "");
+    }
+}
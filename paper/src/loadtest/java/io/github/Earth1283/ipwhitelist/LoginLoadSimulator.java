@@ -0,0 +1,411 @@
+package io.github.Earth1283.ipwhitelist;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Headless load test of the Paper pre-login path. A burst of synthetic
+ * {@link AsyncPlayerPreLoginEvent}s is fired at {@link ConnectionListener}
+ * from many threads released at once, as at the start of a launch event,
+ * while an admin thread adds and removes entries through
+ * {@link DatabaseManager}. Every decision is checked against what the
+ * whitelist held at the time.
+ * <p>
+ * Settings are system properties prefixed with {@code loadTest.}, which
+ * {@code ./gradlew loadTest -PloadTest.threads=5000} passes through; see
+ * {@link Settings#fromSystemProperties}. The process exits with status 1, and
+ * so fails the build, on any wrong decision or exception or when a latency
+ * or throughput budget is missed.
+ */
+public final class LoginLoadSimulator {
+    private static final Logger LOGGER = Logger.getLogger("IPWhitelist-loadtest");
+    private static final int SAMPLES = 1 << 16;
+    private static final int SEED_BATCH = 5000;
+    // Share of logins aimed at the addresses the admin thread is changing
+    private static final double CHURN_SHARE = 0.05;
+    private static final int FIRST_ALLOWED = 0x0A000000; // 10.0.0.0
+    private static final int FIRST_CHURN = 0xAC100000; // 172.16.0.0
+    private static final int DENIED_BASE = 0x64400000; // 100.64.0.0/10, never whitelisted
+    private static final int FLOOD_SUBNETS = 16;
+
+    /** Where denied logins come from. */
+    enum Distribution {
+        /** Spread over a /10, as from many unrelated clients. */
+        UNIFORM,
+        /** Concentrated in a few /24 subnets, as in a connection flood. */
+        SUBNET
+    }
+
+    record Settings(int entries, int logins, int threads, double allowedShare, double ipv6Share,
+            Distribution distribution, int mutationsPerSecond, int churnAddresses, boolean floodProtection,
+            boolean attemptLog, long p99BudgetNanos, long p999BudgetNanos, double minThroughput) {
+
+        /**
+         * Reads {@code loadTest.entries} (whitelist size), {@code logins},
+         * {@code threads}, {@code allowed-share}, {@code ipv6-share},
+         * {@code distribution} (uniform or subnet), {@code mutations-per-second},
+         * {@code churn-addresses}, {@code flood-protection}, {@code attempt-log},
+         * {@code budget.p99-micros}, {@code budget.p999-micros} and
+         * {@code budget.min-throughput} (logins per second).
+         */
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("loadTest.entries", 100_000),
+                    Integer.getInteger("loadTest.logins", 250_000),
+                    Integer.getInteger("loadTest.threads", 5_000),
+                    doubleProperty("loadTest.allowed-share", 0.5),
+                    doubleProperty("loadTest.ipv6-share", 0.1),
+                    Distribution.valueOf(System.getProperty("loadTest.distribution", "uniform")
+                            .toUpperCase(Locale.ROOT)),
+                    Integer.getInteger("loadTest.mutations-per-second", 200),
+                    Integer.getInteger("loadTest.churn-addresses", 1024),
+                    Boolean.parseBoolean(System.getProperty("loadTest.flood-protection", "true")),
+                    Boolean.parseBoolean(System.getProperty("loadTest.attempt-log", "true")),
+                    TimeUnit.MICROSECONDS.toNanos(Long.getLong("loadTest.budget.p99-micros", 1_000)),
+                    TimeUnit.MICROSECONDS.toNanos(Long.getLong("loadTest.budget.p999-micros", 25_000)),
+                    doubleProperty("loadTest.budget.min-throughput", 0));
+        }
+
+        private static double doubleProperty(String name, double def) {
+            String value = System.getProperty(name);
+            return value != null ? Double.parseDouble(value) : def;
+        }
+    }
+
+    /**
+     * Whitelist state of the addresses the admin thread changes. Each slot is
+     * a seqlock word: bit 0 says whether the address is whitelisted, bit 1 is
+     * set while a change is in flight and the rest counts changes. A login
+     * only has an expected outcome if the word was stable and unchanged
+     * around its check.
+     */
+    private static final class ChurnState {
+        private static final long PRESENT = 1;
+        private static final long CHANGING = 2;
+        private static final long VERSION = 4;
+
+        private final AtomicLongArray words;
+
+        ChurnState(int size) {
+            words = new AtomicLongArray(size);
+        }
+
+        long read(int slot) {
+            return words.get(slot);
+        }
+
+        boolean begin(int slot) {
+            long word = words.get(slot);
+            words.set(slot, word | CHANGING);
+            return (word & PRESENT) != 0;
+        }
+
+        void end(int slot, boolean present) {
+            long version = (words.get(slot) & -VERSION) + VERSION;
+            words.set(slot, version | (present ? PRESENT : 0));
+        }
+
+        static boolean stable(long word) {
+            return (word & CHANGING) == 0;
+        }
+
+        static boolean present(long word) {
+            return (word & PRESENT) != 0;
+        }
+    }
+
+    private final Settings settings;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram mutationLatency = new LatencyHistogram();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder wrong = new LongAdder();
+    private final LongAdder unchecked = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder mutations = new LongAdder();
+    private final AtomicReference<String> firstProblem = new AtomicReference<>();
+    private final Metrics metrics = new Metrics();
+    private ChurnState churn;
+    private InetAddress[] churnAddresses;
+    // One precomputed login per sample: its address and either its expected outcome or its churn slot
+    private InetAddress[] sampleAddresses;
+    private boolean[] sampleAllowed;
+    private int[] sampleSlots;
+
+    private LoginLoadSimulator(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LOGGER.setLevel(Level.WARNING);
+        Settings settings = Settings.fromSystemProperties();
+        boolean passed = new LoginLoadSimulator(settings).run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    private boolean run() throws IOException, StorageException, InterruptedException {
+        Path dir = Files.createTempDirectory("ipwhitelist-loadtest");
+        DatabaseManager database = new DatabaseManager(dir.resolve("whitelist.db").toString(), LOGGER, metrics, 4,
+                256);
+        AttemptLog attemptLog = new AttemptLog(dir.resolve("attempts.db").toString(), LOGGER, metrics, 65536, 1000,
+                TimeUnit.DAYS.toMillis(1));
+        try {
+            database.init();
+            if (settings.attemptLog()) {
+                attemptLog.start();
+            }
+            seed(database);
+            PlayerBindings bindings = new PlayerBindings();
+            database.addListener(bindings);
+            database.loadIndex();
+            prepareSamples();
+
+            FloodGuard floodGuard = new FloodGuard(new FloodGuard.Settings(settings.floodProtection(), 50, 10,
+                    30_000, 1, 3, 5, 20), LOGGER);
+            ConfigSnapshot config = ConfigSnapshot.load(new MapConfig(Map.of()));
+            ConnectionListener listener = new ConnectionListener(new LoginGate(LOGGER, database, bindings,
+                    floodGuard, metrics, attemptLog, () -> config));
+            long elapsed = simulate(listener, database);
+            return report(elapsed, attemptLog);
+        } finally {
+            attemptLog.close();
+            database.close();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /** Whitelists the stable allowed addresses; the churn addresses start out absent. */
+    private void seed(DatabaseManager database) throws UnknownHostException {
+        int ipv6 = (int) (settings.entries() * settings.ipv6Share());
+        List<WhitelistEntry> batch = new ArrayList<>(SEED_BATCH);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < settings.entries(); i++) {
+            InetAddress address = allowedAddress(i, i < ipv6);
+            batch.add(new WhitelistEntry(CidrRange.tryParse(address.getHostAddress()), "player" + i, "loadtest",
+                    now));
+            if (batch.size() == SEED_BATCH) {
+                database.addIPs(batch);
+                batch.clear();
+            }
+        }
+        database.addIPs(batch);
+        churn = new ChurnState(settings.churnAddresses());
+        churnAddresses = new InetAddress[settings.churnAddresses()];
+        for (int i = 0; i < churnAddresses.length; i++) {
+            churnAddresses[i] = InetAddress.getByName(IPAddresses.formatIPv4(FIRST_CHURN + i));
+        }
+    }
+
+    private InetAddress allowedAddress(int i, boolean ipv6) throws UnknownHostException {
+        if (ipv6) {
+            return InetAddress.getByName("2001:db8::" + Integer.toHexString(i >>> 16) + ":"
+                    + Integer.toHexString(i & 0xFFFF));
+        }
+        return InetAddress.getByName(IPAddresses.formatIPv4(FIRST_ALLOWED + i));
+    }
+
+    private void prepareSamples() throws UnknownHostException {
+        SplittableRandom random = new SplittableRandom(42);
+        int ipv6 = (int) (settings.entries() * settings.ipv6Share());
+        boolean churning = settings.mutationsPerSecond() > 0 && settings.churnAddresses() > 0;
+        sampleAddresses = new InetAddress[SAMPLES];
+        sampleAllowed = new boolean[SAMPLES];
+        sampleSlots = new int[SAMPLES];
+        for (int s = 0; s < SAMPLES; s++) {
+            sampleSlots[s] = -1;
+            if (churning && random.nextDouble() < CHURN_SHARE) {
+                sampleSlots[s] = random.nextInt(settings.churnAddresses());
+                sampleAddresses[s] = churnAddresses[sampleSlots[s]];
+            } else if (settings.entries() > 0 && random.nextDouble() < settings.allowedShare()) {
+                int i = random.nextInt(settings.entries());
+                sampleAddresses[s] = allowedAddress(i, i < ipv6);
+                sampleAllowed[s] = true;
+            } else if (random.nextDouble() < settings.ipv6Share()) {
+                sampleAddresses[s] = InetAddress.getByName("2001:db8:ffff::"
+                        + Integer.toHexString(random.nextInt(1 << 16)));
+            } else {
+                int host = settings.distribution() == Distribution.SUBNET
+                        ? random.nextInt(FLOOD_SUBNETS) << 8 | random.nextInt(256)
+                        : random.nextInt(1 << 22);
+                sampleAddresses[s] = InetAddress.getByName(IPAddresses.formatIPv4(DENIED_BASE + host));
+            }
+        }
+    }
+
+    /** Releases every login thread at once and runs the admin thread until they finish. */
+    private long simulate(ConnectionListener listener, DatabaseManager database) throws InterruptedException {
+        int threads = Math.max(1, settings.threads());
+        int perThread = Math.max(1, settings.logins() / threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                    login(listener, new SplittableRandom(seed), perThread);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-login-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Thread admin = new Thread(() -> mutate(database, done), "loadtest-admin");
+        admin.setDaemon(true);
+
+        ready.await();
+        long began = System.nanoTime();
+        start.countDown();
+        admin.start();
+        done.await();
+        long elapsed = System.nanoTime() - began;
+        admin.join();
+        return elapsed;
+    }
+
+    private void login(ConnectionListener listener, SplittableRandom random, int count) {
+        for (int n = 0; n < count; n++) {
+            int s = random.nextInt(SAMPLES);
+            InetAddress address = sampleAddresses[s];
+            int slot = sampleSlots[s];
+            AsyncPlayerPreLoginEvent event = new AsyncPlayerPreLoginEvent("player", address, address,
+                    new UUID(random.nextLong(), random.nextLong()), false, (PlayerProfile) null);
+            long before = slot >= 0 ? churn.read(slot) : 0;
+            long started = System.nanoTime();
+            try {
+                listener.onPreLogin(event);
+            } catch (RuntimeException e) {
+                exceptions.increment();
+                firstProblem.compareAndSet(null, "Exception for " + address.getHostAddress() + ": " + e);
+                continue;
+            }
+            latency.recordSince(started);
+
+            boolean wasAllowed = event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED;
+            (wasAllowed ? allowed : denied).increment();
+            boolean expected;
+            if (slot < 0) {
+                expected = sampleAllowed[s];
+            } else if (ChurnState.stable(before) && churn.read(slot) == before) {
+                expected = ChurnState.present(before);
+            } else {
+                // Changed while the login was being checked; either answer is right
+                unchecked.increment();
+                continue;
+            }
+            if (wasAllowed != expected) {
+                wrong.increment();
+                firstProblem.compareAndSet(null, address.getHostAddress() + " was "
+                        + (wasAllowed ? "allowed" : "denied") + " but should have been "
+                        + (expected ? "allowed" : "denied"));
+            }
+        }
+    }
+
+    /** Toggles random churn addresses at the configured rate until the logins are over. */
+    private void mutate(DatabaseManager database, CountDownLatch done) {
+        if (settings.mutationsPerSecond() <= 0 || settings.churnAddresses() <= 0) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        long interval = TimeUnit.SECONDS.toNanos(1) / settings.mutationsPerSecond();
+        long next = System.nanoTime();
+        while (done.getCount() > 0) {
+            int slot = random.nextInt(settings.churnAddresses());
+            String ip = churnAddresses[slot].getHostAddress();
+            boolean present = churn.begin(slot);
+            long started = System.nanoTime();
+            try {
+                boolean changed = present ? database.removeIP(ip) : database.addIP(ip, "loadtest", "churn" + slot);
+                churn.end(slot, changed != present);
+                mutationLatency.recordSince(started);
+                mutations.increment();
+            } catch (RuntimeException e) {
+                // The outcome is unknown, so this address is never checked again
+                exceptions.increment();
+                firstProblem.compareAndSet(null, "Exception changing " + ip + ": " + e);
+                return;
+            }
+            next += interval;
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+    }
+
+    private boolean report(long elapsedNanos, AttemptLog attemptLog) {
+        LatencyHistogram.Snapshot logins = latency.snapshot();
+        LatencyHistogram.Snapshot changes = mutationLatency.snapshot();
+        double seconds = elapsedNanos / 1e9;
+        double throughput = logins.count() / seconds;
+        long p99 = logins.percentile(0.99);
+        long p999 = logins.percentile(0.999);
+
+        System.out.printf(Locale.ROOT, "Login load simulation: %d logins on %d threads, %d entries, "
+                + "%.0f%% allowed, %s denied sources, %d admin changes/s%n", logins.count() + exceptions.sum(),
+                settings.threads(), settings.entries(), settings.allowedShare() * 100,
+                settings.distribution().name().toLowerCase(Locale.ROOT), settings.mutationsPerSecond());
+        System.out.printf(Locale.ROOT, "  throughput  %.0f logins/s over %.2f s%n", throughput, seconds);
+        System.out.printf(Locale.ROOT, "  decisions   %d allowed, %d denied (%d throttled), "
+                + "%d unchecked during changes%n", allowed.sum(), denied.sum(), metrics.throttled(), unchecked.sum());
+        System.out.printf(Locale.ROOT, "  latency     p50 %s  p99 %s  p999 %s  max %s%n",
+                Metrics.formatNanos(logins.percentile(0.5)), Metrics.formatNanos(p99), Metrics.formatNanos(p999),
+                Metrics.formatNanos(logins.percentile(1)));
+        System.out.printf(Locale.ROOT, "  changes     %d (p50 %s  p99 %s)%n", mutations.sum(),
+                Metrics.formatNanos(changes.percentile(0.5)), Metrics.formatNanos(changes.percentile(0.99)));
+        if (settings.attemptLog()) {
+            System.out.printf(Locale.ROOT, "  attempt log %d dropped%n", attemptLog.dropped());
+        }
+        System.out.printf(Locale.ROOT, "  wrong       %d%n  exceptions  %d%n", wrong.sum(), exceptions.sum());
+
+        List<String> failures = new ArrayList<>();
+        if (wrong.sum() > 0 || exceptions.sum() > 0) {
+            failures.add(firstProblem.get());
+        }
+        if (p99 > settings.p99BudgetNanos()) {
+            failures.add("p99 latency " + Metrics.formatNanos(p99) + " exceeds the budget of "
+                    + Metrics.formatNanos(settings.p99BudgetNanos()));
+        }
+        if (p999 > settings.p999BudgetNanos()) {
+            failures.add("p999 latency " + Metrics.formatNanos(p999) + " exceeds the budget of "
+                    + Metrics.formatNanos(settings.p999BudgetNanos()));
+        }
+        if (throughput < settings.minThroughput()) {
+            failures.add(String.format(Locale.ROOT, "throughput %.0f logins/s is below the budget of %.0f",
+                    throughput, settings.minThroughput()));
+        }
+        for (String failure : failures) {
+            System.out.println("FAILED: " + failure);
+        }
+        return failures.isEmpty();
+    }
+}
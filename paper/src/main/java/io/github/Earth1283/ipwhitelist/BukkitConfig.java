@@ -0,0 +1,31 @@
+package io.github.Earth1283.ipwhitelist;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/** {@link PluginConfig} over Bukkit's configuration API. */
+record BukkitConfig(ConfigurationSection section) implements PluginConfig {
+    @Override
+    public String getString(String path, String def) {
+        return section.getString(path, def);
+    }
+
+    @Override
+    public boolean getBoolean(String path, boolean def) {
+        return section.getBoolean(path, def);
+    }
+
+    @Override
+    public int getInt(String path, int def) {
+        return section.getInt(path, def);
+    }
+
+    @Override
+    public long getLong(String path, long def) {
+        return section.getLong(path, def);
+    }
+
+    @Override
+    public double getDouble(String path, double def) {
+        return section.getDouble(path, def);
+    }
+}
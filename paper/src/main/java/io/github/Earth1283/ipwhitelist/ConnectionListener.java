@@ -1,21 +1,19 @@
 package io.github.Earth1283.ipwhitelist;
 
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 
-import java.net.InetAddress;
-
+/**
+ * Applies the {@link LoginGate} to Paper logins at the pre-login stage, before
+ * the player joins the world.
+ */
 public class ConnectionListener implements Listener {
-    private final IPWhitelistPlugin plugin;
-    private final DatabaseManager databaseManager;
-    private final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private final LoginGate gate;
 
-    public ConnectionListener(IPWhitelistPlugin plugin, DatabaseManager databaseManager) {
-        this.plugin = plugin;
-        this.databaseManager = databaseManager;
+    public ConnectionListener(LoginGate gate) {
+        this.gate = gate;
     }
 
     @EventHandler
@@ -37,19 +35,9 @@ public class ConnectionListener implements Listener {
         // Let's stick to IP check for security in PreLogin which is standard.
         // If the user *really* wants bypass, they can add their IP.
 
-        InetAddress address = event.getAddress();
-        String ip = address.getHostAddress();
-
-        // Debug logging
-        if (plugin.getConfig().getBoolean("debug-mode", false)) {
-            plugin.getLogger().info("Checking IP: " + ip);
-        }
-
-        if (!databaseManager.isWhitelisted(ip)) {
-            String kickMessageRaw = plugin.getConfig().getString("kick-message",
-                    "<red>You are not whitelisted on this server.</red>");
-            Component kickMessage = miniMessage.deserialize(kickMessageRaw);
-            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, kickMessage);
+        Component message = gate.check(event.getAddress(), event.getName(), event.getUniqueId());
+        if (message != null) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, message);
         }
     }
 }
@@ -0,0 +1,99 @@
+package io.github.Earth1283.ipwhitelist;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Paper adapter: runs an {@link IPWhitelistCore} inside the server and wires
+ * it to Bukkit's events, commands and scheduler.
+ */
+public class IPWhitelistPlugin extends JavaPlugin implements Platform {
+    private IPWhitelistCore core;
+
+    @Override
+    public void onEnable() {
+        // Load Config
+        saveDefaultConfig();
+
+        core = new IPWhitelistCore(this, getLogger());
+        try {
+            core.enable();
+        } catch (StorageException e) {
+            getLogger().severe("Failed to initialize storage! Disabling plugin.");
+            getLogger().severe(e.getMessage() + ": " + e.getCause().getMessage());
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+
+        // Register Listeners
+        getServer().getPluginManager().registerEvents(new ConnectionListener(core.loginGate()), this);
+
+        // Register Commands
+        PluginCommand pluginCommand = getCommand("ipwhitelist");
+        pluginCommand.setExecutor(new PaperCommand(core.command()));
+
+        Set<String> labels = new HashSet<>(pluginCommand.getAliases());
+        labels.add(pluginCommand.getName());
+        getServer().getPluginManager().registerEvents(new TabCompleteListener(core.command(), labels), this);
+
+        getLogger().info("IPWhitelist enabled successfully!");
+    }
+
+    @Override
+    public void onDisable() {
+        if (core != null) {
+            core.disable();
+        }
+        getLogger().info("IPWhitelist disabled.");
+    }
+
+    @Override
+    public Path dataFolder() {
+        return getDataFolder().toPath();
+    }
+
+    @Override
+    public PluginConfig loadConfig() {
+        reloadConfig();
+        return new BukkitConfig(getConfig());
+    }
+
+    /** Results come back on the main thread, where Bukkit expects them. */
+    @Override
+    public Executor callbackExecutor() {
+        return task -> {
+            if (isEnabled()) {
+                getServer().getScheduler().runTask(this, task);
+            }
+        };
+    }
+
+    @Override
+    public Collection<String> onlinePlayerNames() {
+        return getServer().getOnlinePlayers().stream().map(Player::getName).toList();
+    }
+
+    @Override
+    public UUID playerId(String name) {
+        Player online = getServer().getPlayerExact(name);
+        if (online != null) {
+            return online.getUniqueId();
+        }
+        // Players who have joined before are in the user cache; anyone else would need a blocking profile lookup
+        OfflinePlayer cached = getServer().getOfflinePlayerIfCached(name);
+        return cached != null ? cached.getUniqueId() : null;
+    }
+
+    public WhitelistStorage getStorage() {
+        return core.storage();
+    }
+}
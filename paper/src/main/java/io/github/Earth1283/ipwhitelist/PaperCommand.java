@@ -0,0 +1,57 @@
+package io.github.Earth1283.ipwhitelist;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+/** Hands Bukkit's {@code /ipwhitelist} to the shared {@link WhitelistCommand}. */
+public class PaperCommand implements CommandExecutor, TabCompleter {
+    private final WhitelistCommand command;
+
+    private record PaperSender(CommandSender sender) implements Sender {
+        @Override
+        public String name() {
+            return sender.getName();
+        }
+
+        @Override
+        public UUID uniqueId() {
+            return sender instanceof Player player ? player.getUniqueId() : CONSOLE_ID;
+        }
+
+        @Override
+        public boolean hasPermission(String permission) {
+            return sender.hasPermission(permission);
+        }
+
+        @Override
+        public void sendMessage(Component message) {
+            sender.sendMessage(message);
+        }
+    }
+
+    public PaperCommand(WhitelistCommand command) {
+        this.command = command;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command cmd, @NotNull String label,
+            @NotNull String[] args) {
+        command.execute(new PaperSender(sender), args);
+        return true;
+    }
+
+    @Override
+    public @Nullable List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command cmd,
+            @NotNull String label, @NotNull String[] args) {
+        return command.complete(new PaperSender(sender), args);
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.Earth1283.ipwhitelist;
+
+import com.destroystokyo.paper.event.server.AsyncTabCompleteEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Answers {@code /ipwhitelist remove <tab>} from Paper's async tab-complete
+ * event, so whitelist suggestions never cost main-thread time. Every other
+ * completion falls through to {@link PaperCommand#onTabComplete}.
+ */
+public class TabCompleteListener implements Listener {
+    private final WhitelistCommand command;
+    private final Set<String> labels;
+
+    public TabCompleteListener(WhitelistCommand command, Set<String> labels) {
+        this.command = command;
+        this.labels = labels;
+    }
+
+    @EventHandler
+    public void onAsyncTabComplete(AsyncTabCompleteEvent event) {
+        if (!event.isCommand() || event.isHandled()) {
+            return;
+        }
+        // Buffer looks like "/ipwhitelist remove 203.0"
+        String[] parts = event.getBuffer().split(" ", -1);
+        if (parts.length != 3 || !parts[1].equalsIgnoreCase("remove")) {
+            return;
+        }
+        String label = parts[0].substring(parts[0].startsWith("/") ? 1 : 0).toLowerCase(Locale.ROOT);
+        label = label.substring(label.indexOf(':') + 1); // strip namespace, e.g. "ipwhitelist:"
+        if (!labels.contains(label) || !event.getSender().hasPermission("ipwhitelist.admin")) {
+            return;
+        }
+        event.setCompletions(command.completeRemoveTarget(parts[2]));
+        event.setHandled(true);
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.Earth1283.ipwhitelist;
+
+import com.google.inject.Inject;
+import com.velocitypowered.api.command.CommandManager;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
+import com.velocitypowered.api.plugin.annotation.DataDirectory;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Velocity adapter: runs an {@link IPWhitelistCore} in the proxy so that
+ * connections are refused before they reach any backend server. It reads the
+ * same config.yml as the Paper plugin; point {@code database.file} at the
+ * database the backends use and the proxy enforces their whitelist, picking
+ * up changes through the shared change log.
+ */
+public class IPWhitelistVelocity implements Platform {
+    private final ProxyServer server;
+    private final Path dataDirectory;
+    private final Logger logger = Logger.getLogger("IPWhitelist");
+    private IPWhitelistCore core;
+
+    @Inject
+    public IPWhitelistVelocity(ProxyServer server, @DataDirectory Path dataDirectory) {
+        this.server = server;
+        this.dataDirectory = dataDirectory;
+    }
+
+    @Subscribe
+    public void onProxyInitialize(ProxyInitializeEvent event) {
+        saveDefaultConfig();
+
+        core = new IPWhitelistCore(this, logger);
+        try {
+            core.enable();
+        } catch (StorageException e) {
+            logger.severe("Failed to initialize storage! The whitelist is not enforced.");
+            logger.severe(e.getMessage() + ": " + e.getCause().getMessage());
+            core.disable();
+            core = null;
+            return;
+        }
+
+        server.getEventManager().register(this, new VelocityConnectionListener(core.loginGate()));
+
+        // Named apart from the backend command so both stay reachable from behind the proxy
+        CommandManager commands = server.getCommandManager();
+        commands.register(commands.metaBuilder("vipwhitelist").aliases("vipw").plugin(this).build(),
+                new VelocityCommand(core.command()));
+
+        logger.info("IPWhitelist enabled successfully!");
+    }
+
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (core != null) {
+            core.disable();
+        }
+        logger.info("IPWhitelist disabled.");
+    }
+
+    private void saveDefaultConfig() {
+        Path file = dataDirectory.resolve("config.yml");
+        if (Files.exists(file)) {
+            return;
+        }
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("config.yml")) {
+            Files.createDirectories(dataDirectory);
+            Files.copy(in, file);
+        } catch (IOException e) {
+            logger.severe("Could not save the default config: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Path dataFolder() {
+        return dataDirectory;
+    }
+
+    @Override
+    public PluginConfig loadConfig() {
+        try (Reader reader = Files.newBufferedReader(dataDirectory.resolve("config.yml"))) {
+            Map<?, ?> root = new Yaml().load(reader);
+            return new MapConfig(root);
+        } catch (IOException | RuntimeException e) {
+            logger.severe("Could not load config.yml, using defaults: " + e.getMessage());
+            return new MapConfig(Map.of());
+        }
+    }
+
+    /** The proxy has no main thread; results are sent straight from the storage thread. */
+    @Override
+    public Executor callbackExecutor() {
+        return Runnable::run;
+    }
+
+    @Override
+    public Collection<String> onlinePlayerNames() {
+        return server.getAllPlayers().stream().map(Player::getUsername).toList();
+    }
+
+    /** The proxy keeps no record of past players, so only those online are known. */
+    @Override
+    public UUID playerId(String name) {
+        return server.getPlayer(name).map(Player::getUniqueId).orElse(null);
+    }
+}
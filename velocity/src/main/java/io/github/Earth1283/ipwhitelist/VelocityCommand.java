@@ -0,0 +1,52 @@
+package io.github.Earth1283.ipwhitelist;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import com.velocitypowered.api.proxy.Player;
+import net.kyori.adventure.text.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/** Hands the proxy's {@code /vipwhitelist} to the shared {@link WhitelistCommand}. */
+public class VelocityCommand implements SimpleCommand {
+    private final WhitelistCommand command;
+
+    private record VelocitySender(CommandSource source) implements Sender {
+        @Override
+        public String name() {
+            return source instanceof Player player ? player.getUsername() : "CONSOLE";
+        }
+
+        @Override
+        public UUID uniqueId() {
+            return source instanceof Player player ? player.getUniqueId() : CONSOLE_ID;
+        }
+
+        @Override
+        public boolean hasPermission(String permission) {
+            return source.hasPermission(permission);
+        }
+
+        @Override
+        public void sendMessage(Component message) {
+            source.sendMessage(message);
+        }
+    }
+
+    public VelocityCommand(WhitelistCommand command) {
+        this.command = command;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        command.execute(new VelocitySender(invocation.source()), invocation.arguments());
+    }
+
+    @Override
+    public List<String> suggest(Invocation invocation) {
+        String[] args = invocation.arguments();
+        // Velocity passes no arguments at all for "/vipw "
+        return command.complete(new VelocitySender(invocation.source()), args.length == 0 ? new String[] {""} : args);
+    }
+}
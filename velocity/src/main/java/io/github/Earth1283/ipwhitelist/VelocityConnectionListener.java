@@ -0,0 +1,56 @@
+package io.github.Earth1283.ipwhitelist;
+
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.ResultedEvent;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.connection.PreLoginEvent;
+import com.velocitypowered.api.proxy.Player;
+import net.kyori.adventure.text.Component;
+
+import java.net.InetAddress;
+
+/**
+ * Applies the {@link LoginGate} at {@link PreLoginEvent}, the first event at
+ * which Velocity can refuse a connection: right after the handshake, before
+ * the proxy authenticates the player or picks a backend server. In strict
+ * mode, connections from a whitelisted address are decided at
+ * {@link LoginEvent} instead, once their UUID has been authenticated; each
+ * connection is still checked, and recorded, exactly once.
+ */
+public class VelocityConnectionListener {
+    private final LoginGate gate;
+
+    public VelocityConnectionListener(LoginGate gate) {
+        this.gate = gate;
+    }
+
+    @Subscribe(order = PostOrder.FIRST)
+    public void onPreLogin(PreLoginEvent event) {
+        if (!event.getResult().isAllowed()) {
+            return;
+        }
+        InetAddress address = event.getConnection().getRemoteAddress().getAddress();
+        // Any UUID on the event is whatever the client claims, so a bound entry can only be checked later
+        if (gate.strict() && gate.admitsAddress(address)) {
+            return;
+        }
+        Component message = gate.check(address, event.getUsername(), null);
+        if (message != null) {
+            event.setResult(PreLoginEvent.PreLoginComponentResult.denied(message));
+        }
+    }
+
+    @Subscribe(order = PostOrder.FIRST)
+    public void onLogin(LoginEvent event) {
+        if (!gate.strict() || !event.getResult().isAllowed()) {
+            return;
+        }
+        Player player = event.getPlayer();
+        Component message = gate.check(player.getRemoteAddress().getAddress(), player.getUsername(),
+                player.getUniqueId());
+        if (message != null) {
+            event.setResult(ResultedEvent.ComponentResult.denied(message));
+        }
+    }
+}